@@ -0,0 +1,28 @@
+package com.ainote.eval;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 伪造的 ChatModel：不调用任何大模型，固定返回一段与提示词长度相关的确定性文本，
+ * 使问答链路的延迟只反映检索、重排与上下文组装本身。
+ */
+public class EchoChatModel implements ChatModel {
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String contents = prompt.getContents();
+        String reply = "[eval] prompt received (" + (contents != null ? contents.length() : 0) + " chars).";
+        return new ChatResponse(List.of(new Generation(reply)));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.just(call(prompt));
+    }
+}
@@ -0,0 +1,35 @@
+package com.ainote.eval;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 评测环境的模型与向量库替身。DashScope 与 PgVector 自动配置在 application-eval.properties 中被排除，
+ * 由这里提供离线实现；EmbeddingModel 仍会被 {@link com.ainote.config.EmbeddingBatchConfig} 包装（微批处理与最近查询向量复用）。
+ */
+@Configuration
+@Profile("eval")
+public class EvalConfig {
+
+    @Bean
+    public EmbeddingModel embeddingModel(@Value("${ainote.eval.embedding-dimensions:1536}") int dimensions) {
+        return new HashingEmbeddingModel(dimensions);
+    }
+
+    @Bean
+    public ChatModel chatModel() {
+        return new EchoChatModel();
+    }
+
+    // 内存向量库代替 pgvector（精确余弦检索，无 HNSW 近似误差）
+    @Bean
+    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
+        return new SimpleVectorStore(embeddingModel);
+    }
+}
@@ -0,0 +1,43 @@
+package com.ainote.eval;
+
+import com.ainote.util.QueryHighlighter;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 伪造的 Rerank 接口，响应格式与 DashScope text-rerank 一致：
+ * 相关度取查询词项在文档中的覆盖率（0~1），按分数降序返回。
+ * <p>
+ * 位于 com.ainote.controller 之外，因此不会被统一响应包装。
+ */
+@Profile("eval")
+@RestController
+public class FakeRerankController {
+
+    @PostMapping("/eval/rerank")
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> rerank(@RequestBody Map<String, Object> requestBody) {
+        Map<String, Object> input = (Map<String, Object>) requestBody.get("input");
+        Set<String> queryTerms = QueryHighlighter.tokenize((String) input.get("query"));
+        List<String> documents = (List<String>) input.get("documents");
+
+        List<Map<String, Object>> results = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Set<String> docTerms = QueryHighlighter.tokenize(documents.get(i));
+            long hits = queryTerms.stream().filter(docTerms::contains).count();
+            double score = queryTerms.isEmpty() ? 0.0 : (double) hits / queryTerms.size();
+            results.add(Map.of("index", i, "relevance_score", score));
+        }
+        results.sort(Comparator.comparingDouble(r -> -((Double) r.get("relevance_score"))));
+
+        return Map.of("output", Map.of("results", results));
+    }
+}
@@ -0,0 +1,66 @@
+package com.ainote.eval;
+
+import com.ainote.util.QueryHighlighter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 确定性的伪造 Embedding：将文本切分为词项（与高亮器同一套规则），
+ * 通过特征哈希映射到固定维度并做 L2 归一化。共享词项越多，余弦相似度越高，且无需网络。
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+
+    public HashingEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> inputs = request.getInstructions();
+        for (int i = 0; i < inputs.size(); i++) {
+            embeddings.add(new Embedding(embedText(inputs.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return embedText(document.getContent());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private List<Double> embedText(String text) {
+        double[] vector = new double[dimensions];
+        for (String term : QueryHighlighter.tokenize(text)) {
+            int hash = term.hashCode();
+            int bucket = Math.floorMod(hash, dimensions);
+            // 用另一段哈希位决定符号，降低哈希冲突带来的系统性偏差
+            vector[bucket] += ((hash >>> 16) & 1) == 0 ? 1.0 : -1.0;
+        }
+
+        double norm = 0;
+        for (double v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+
+        List<Double> result = new ArrayList<>(dimensions);
+        for (double v : vector) {
+            result.add(norm == 0 ? 0.0 : v / norm);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ainote.eval;
+
+import com.ainote.AINoteApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 检索评测入口：mvn -Peval spring-boot:run
+ * <p>
+ * 启动内嵌 PostgreSQL（无需 Docker，jsonb 原生查询可正常执行），以 eval Profile 运行完整应用，
+ * Rerank 请求指向应用自身的伪造接口；评测结束后关闭应用与数据库。
+ * 额外参数可覆盖评测配置，例如 {@code -Dspring-boot.run.arguments=--ainote.eval.notes=1000}。
+ */
+public class RetrievalEvalRunner {
+
+    public static void main(String[] args) throws IOException {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            int port = findFreePort();
+            List<String> appArgs = new ArrayList<>(List.of(
+                    "--spring.profiles.active=eval",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--server.port=" + port,
+                    "--ainote.rerank.url=http://localhost:" + port + "/eval/rerank"));
+            appArgs.addAll(Arrays.asList(args));
+
+            try (ConfigurableApplicationContext context = SpringApplication.run(AINoteApplication.class,
+                    appArgs.toArray(String[]::new))) {
+                context.getBean(RetrievalEvaluator.class).run();
+            }
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
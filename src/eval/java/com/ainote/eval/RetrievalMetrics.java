@@ -0,0 +1,76 @@
+package com.ainote.eval;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 单个检索接口的评测累加器：recall@k、MRR 与延迟分位数。
+ */
+public class RetrievalMetrics {
+
+    private final String name;
+    private final int[] cutoffs;
+    private final double[] recallSums;
+    private double reciprocalRankSum;
+    private int queries;
+    private final List<Long> latenciesNanos = new ArrayList<>();
+
+    public RetrievalMetrics(String name, int... cutoffs) {
+        this.name = name;
+        this.cutoffs = cutoffs;
+        this.recallSums = new double[cutoffs.length];
+    }
+
+    /**
+     * 记录一次查询。
+     *
+     * @param rankedNoteIds 接口返回的笔记 ID（按排名，已去重）
+     * @param relevantIds   标注的相关笔记 ID
+     */
+    public void record(List<String> rankedNoteIds, Set<String> relevantIds, long latencyNanos) {
+        queries++;
+        latenciesNanos.add(latencyNanos);
+
+        for (int c = 0; c < cutoffs.length; c++) {
+            int limit = Math.min(cutoffs[c], rankedNoteIds.size());
+            long hits = rankedNoteIds.subList(0, limit).stream().filter(relevantIds::contains).count();
+            recallSums[c] += (double) hits / relevantIds.size();
+        }
+        for (int rank = 0; rank < rankedNoteIds.size(); rank++) {
+            if (relevantIds.contains(rankedNoteIds.get(rank))) {
+                reciprocalRankSum += 1.0 / (rank + 1);
+                break;
+            }
+        }
+    }
+
+    public String header() {
+        StringBuilder sb = new StringBuilder(String.format("%-22s %7s", "endpoint", "queries"));
+        for (int cutoff : cutoffs) {
+            sb.append(String.format(" %9s", "recall@" + cutoff));
+        }
+        return sb.append(String.format(" %7s %9s %9s %9s", "MRR", "p50(ms)", "p95(ms)", "p99(ms)")).toString();
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder(String.format("%-22s %7d", name, queries));
+        for (double recallSum : recallSums) {
+            sb.append(String.format(" %9.3f", queries == 0 ? 0.0 : recallSum / queries));
+        }
+        return sb.append(String.format(" %7.3f %9.2f %9.2f %9.2f",
+                queries == 0 ? 0.0 : reciprocalRankSum / queries,
+                percentileMillis(0.50), percentileMillis(0.95), percentileMillis(0.99))).toString();
+    }
+
+    private double percentileMillis(double percentile) {
+        if (latenciesNanos.isEmpty()) {
+            return 0.0;
+        }
+        List<Long> sorted = new ArrayList<>(latenciesNanos);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+}
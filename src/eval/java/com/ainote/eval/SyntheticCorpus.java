@@ -0,0 +1,136 @@
+package com.ainote.eval;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 带标注的合成语料：由固定随机种子生成，保证每次评测的语料与查询完全一致。
+ * <p>
+ * 每个领域拥有独立的术语表与实体池；每篇笔记带一对全局唯一的“签名词”。
+ * 查询分两类：签名查询（唯一相关笔记，用于衡量精确定位）与实体查询（所有含该实体的笔记均相关，用于衡量召回）。
+ */
+public class SyntheticCorpus {
+
+    public enum QueryKind {
+        SIGNATURE, ENTITY
+    }
+
+    public record CorpusNote(int index, String title, String domain, String contentType, List<String> entities,
+            List<String> propositions) {
+    }
+
+    public record LabelledQuery(QueryKind kind, String text, Set<Integer> relevantNotes) {
+    }
+
+    private static final String[] DOMAINS = { "数据库", "前端工程", "机器学习", "分布式系统", "操作系统", "计算机网络" };
+    private static final String[] CONTENT_TYPES = { "概念笔记", "实践记录", "踩坑总结" };
+    private static final String[] SYLLABLES = { "ka", "lo", "mi", "ren", "tus", "vex", "zor", "qua", "dri", "fen",
+            "gal", "hop", "jin", "nox", "pel", "sar", "tor", "ul", "wen", "yor", "bex", "cil", "dun", "esk" };
+    private static final String[] FILLERS = { "在实际项目中", "需要注意的是", "总体来看", "根据文档描述", "经过测试验证" };
+
+    private static final int TERMS_PER_DOMAIN = 30;
+    private static final int ENTITIES_PER_DOMAIN = 12;
+    private static final int ENTITIES_PER_NOTE = 3;
+    private static final int PROPOSITIONS_PER_NOTE = 3;
+
+    private final List<CorpusNote> notes = new ArrayList<>();
+    private final List<LabelledQuery> queries = new ArrayList<>();
+
+    public static SyntheticCorpus generate(long seed, int noteCount, int queryCount) {
+        return new SyntheticCorpus(new Random(seed), noteCount, queryCount);
+    }
+
+    private SyntheticCorpus(Random random, int noteCount, int queryCount) {
+        Set<String> usedWords = new HashSet<>();
+        Map<String, List<String>> termsByDomain = new LinkedHashMap<>();
+        Map<String, List<String>> entitiesByDomain = new LinkedHashMap<>();
+        for (String domain : DOMAINS) {
+            termsByDomain.put(domain, uniqueWords(random, usedWords, TERMS_PER_DOMAIN, 2));
+            entitiesByDomain.put(domain, uniqueWords(random, usedWords, ENTITIES_PER_DOMAIN, 3));
+        }
+
+        List<List<String>> signatures = new ArrayList<>();
+        for (int i = 0; i < noteCount; i++) {
+            String domain = DOMAINS[i % DOMAINS.length];
+            List<String> terms = termsByDomain.get(domain);
+            List<String> entities = pick(random, entitiesByDomain.get(domain), ENTITIES_PER_NOTE);
+            List<String> signature = uniqueWords(random, usedWords, 2, 4);
+            signatures.add(signature);
+
+            List<String> propositions = new ArrayList<>();
+            for (int p = 0; p < PROPOSITIONS_PER_NOTE; p++) {
+                StringBuilder sb = new StringBuilder(FILLERS[random.nextInt(FILLERS.length)]).append("，");
+                sb.append(entities.get(p % entities.size()));
+                for (String term : pick(random, terms, 4)) {
+                    sb.append(' ').append(term);
+                }
+                if (p == 0) {
+                    sb.append(' ').append(String.join(" ", signature));
+                }
+                propositions.add(sb.append("。").toString());
+            }
+            notes.add(new CorpusNote(i, domain + " 笔记 " + i, domain,
+                    CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)], entities, propositions));
+        }
+
+        // 签名查询与实体查询各占一半
+        int signatureQueries = Math.min(noteCount, (queryCount + 1) / 2);
+        for (int i = 0; i < signatureQueries; i++) {
+            int noteIndex = random.nextInt(noteCount);
+            queries.add(new LabelledQuery(QueryKind.SIGNATURE, String.join(" ", signatures.get(noteIndex)),
+                    Set.of(noteIndex)));
+        }
+
+        List<String> allEntities = entitiesByDomain.values().stream().flatMap(List::stream).toList();
+        for (int i = 0; i < queryCount - signatureQueries; i++) {
+            String entity = allEntities.get(random.nextInt(allEntities.size()));
+            Set<Integer> relevant = new LinkedHashSet<>();
+            for (CorpusNote note : notes) {
+                if (note.entities().contains(entity)) {
+                    relevant.add(note.index());
+                }
+            }
+            if (!relevant.isEmpty()) {
+                queries.add(new LabelledQuery(QueryKind.ENTITY, entity, relevant));
+            }
+        }
+    }
+
+    public List<CorpusNote> getNotes() {
+        return notes;
+    }
+
+    public List<LabelledQuery> getQueries() {
+        return queries;
+    }
+
+    private static List<String> uniqueWords(Random random, Set<String> usedWords, int count, int syllables) {
+        List<String> words = new ArrayList<>(count);
+        while (words.size() < count) {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < syllables; s++) {
+                sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            String word = sb.toString();
+            if (usedWords.add(word)) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static List<String> pick(Random random, List<String> pool, int count) {
+        List<String> copy = new ArrayList<>(pool);
+        List<String> picked = new ArrayList<>(count);
+        for (int i = 0; i < count && !copy.isEmpty(); i++) {
+            picked.add(copy.remove(random.nextInt(copy.size())));
+        }
+        return picked;
+    }
+}
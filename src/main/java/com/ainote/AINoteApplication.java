@@ -8,6 +8,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @org.springframework.scheduling.annotation.EnableAsync
 @org.springframework.cache.annotation.EnableCaching
 @org.springframework.retry.annotation.EnableRetry
+@org.springframework.scheduling.annotation.EnableScheduling
 public class AINoteApplication {
 
     public static void main(String[] args) {
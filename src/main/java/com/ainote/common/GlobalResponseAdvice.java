@@ -1,5 +1,6 @@
 package com.ainote.common;
 
+import com.ainote.config.CompactGraphHttpMessageConverter;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.core.MethodParameter;
@@ -42,6 +43,10 @@ public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
         if (Flux.class.isAssignableFrom(returnType.getParameterType())) {
             return false;
         }
+        // 图谱紧凑编码直接输出二进制，不包装
+        if (CompactGraphHttpMessageConverter.class.isAssignableFrom(converterType)) {
+            return false;
+        }
         return true;
     }
 
@@ -6,6 +6,10 @@ import lombok.AllArgsConstructor;
 
 import java.util.List;
 
+/**
+ * 分页结果。页码分页使用 current / size；游标分页时 current 为 0，
+ * nextCursor 为下一页游标（为空表示已无更多数据）。
+ */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -14,8 +18,13 @@ public class PageData<T> {
     private long total;
     private int current;
     private int size;
+    private String nextCursor;
 
     public static <T> PageData<T> of(List<T> records, long total, int current, int size) {
-        return new PageData<>(records, total, current, size);
+        return new PageData<>(records, total, current, size, null);
+    }
+
+    public static <T> PageData<T> ofCursor(List<T> records, long total, int size, String nextCursor) {
+        return new PageData<>(records, total, 0, size, nextCursor);
     }
 }
@@ -0,0 +1,182 @@
+package com.ainote.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 查询向量的微批处理装饰器：在一个很短的时间窗口内（或攒满 maxBatchSize 条后）
+ * 将并发请求的 {@link #embed(String)} 合并为一次批量 Embedding 调用，再分别完成各调用方的 Future。
+ * <p>
+ * 仅批处理单条文本的查询向量（搜索、问答、下钻等）；文档入库与显式批量调用直接透传。
+ * 最近查询向量的复用由外层的 {@link RecentQueryEmbeddingModel} 负责。
+ */
+@Slf4j
+public class BatchingEmbeddingModel implements EmbeddingModel {
+
+    private record PendingEmbedding(String text, long enqueuedAt, CompletableFuture<List<Double>> future) {
+    }
+
+    private final EmbeddingModel delegate;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final long timeoutMillis;
+
+    private final ConcurrentLinkedQueue<PendingEmbedding> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService dispatcher;
+
+    private final Timer waitTimer;
+    private final DistributionSummary batchSizeSummary;
+
+    public BatchingEmbeddingModel(EmbeddingModel delegate, long windowMillis, int maxBatchSize, int dispatchThreads,
+            long timeoutMillis, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.dispatcher = Executors.newScheduledThreadPool(dispatchThreads, r -> {
+            Thread t = new Thread(r, "Embedding-Batch-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.waitTimer = Timer.builder("ainote.embedding.batch.wait")
+                .description("Latency added by waiting for the embedding batch window")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("ainote.embedding.batch.size")
+                .description("Number of query texts sent per batched embedding request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        PendingEmbedding pending = new PendingEmbedding(text, System.nanoTime(), new CompletableFuture<>());
+        queue.add(pending);
+
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            // 攒满一批立即发送，不再等待时间窗口
+            dispatcher.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            dispatcher.schedule(() -> {
+                flushScheduled.set(false);
+                flush();
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+
+        // 等待有上限：分发线程异常退出等情况下调用方不会永久阻塞
+        try {
+            return pending.future().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            if (e.getCause() instanceof TimeoutException) {
+                throw new IllegalStateException("Batched embedding timed out after " + timeoutMillis + " ms", e);
+            }
+            throw e;
+        }
+    }
+
+    private void flush() {
+        List<PendingEmbedding> batch = new ArrayList<>(maxBatchSize);
+        PendingEmbedding next;
+        while (batch.size() < maxBatchSize && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        queued.addAndGet(-batch.size());
+
+        // 队列中仍有积压时继续分发下一批
+        if (!queue.isEmpty()) {
+            dispatcher.execute(this::flush);
+        }
+
+        long dispatchedAt = System.nanoTime();
+        for (PendingEmbedding p : batch) {
+            waitTimer.record(dispatchedAt - p.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+
+        // 同一批次内的重复文本只请求一次
+        Map<String, List<CompletableFuture<List<Double>>>> byText = new LinkedHashMap<>();
+        for (PendingEmbedding p : batch) {
+            byText.computeIfAbsent(p.text(), k -> new ArrayList<>()).add(p.future());
+        }
+        List<String> texts = new ArrayList<>(byText.keySet());
+        batchSizeSummary.record(texts.size());
+
+        try {
+            List<List<Double>> embeddings = delegate.embed(texts);
+            if (embeddings == null || embeddings.size() != texts.size()) {
+                throw new IllegalStateException("Embedding batch returned "
+                        + (embeddings == null ? 0 : embeddings.size()) + " vectors for " + texts.size() + " inputs");
+            }
+            for (int i = 0; i < texts.size(); i++) {
+                List<Double> embedding = embeddings.get(i);
+                byText.get(texts.get(i)).forEach(f -> f.complete(embedding));
+            }
+            log.debug("Dispatched batched embedding request with {} texts ({} callers).", texts.size(), batch.size());
+        } catch (Throwable e) {
+            // 包括 Error：任何失败都必须完成本批全部 Future，否则调用方会一直等到超时
+            log.warn("Batched embedding request failed for {} texts: {}", texts.size(), e.getMessage());
+            batch.forEach(p -> p.future().completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public List<List<Double>> embed(List<String> texts) {
+        return delegate.embed(texts);
+    }
+
+    @Override
+    public EmbeddingResponse embedForResponse(List<String> texts) {
+        return delegate.embedForResponse(texts);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,43 @@
+package com.ainote.config;
+
+import com.ainote.dto.GraphDataDTO;
+import com.ainote.util.CompactGraphCodec;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * 图谱接口的紧凑编码：请求头 {@code Accept: application/x-ainote-graph} 时以 {@link CompactGraphCodec}
+ * 的二进制列式布局输出 {@link GraphDataDTO}，不经过 Result 包装；其余请求仍走 JSON。
+ * <p>
+ * 由 {@link WebMvcConfig} 追加在默认转换器之后，Accept 为通配符或 JSON 的请求仍协商为 JSON。
+ */
+public class CompactGraphHttpMessageConverter extends AbstractHttpMessageConverter<GraphDataDTO> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-ainote-graph";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    public CompactGraphHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return GraphDataDTO.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected GraphDataDTO readInternal(Class<? extends GraphDataDTO> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return CompactGraphCodec.decode(inputMessage.getBody());
+    }
+
+    @Override
+    protected void writeInternal(GraphDataDTO graph, HttpOutputMessage outputMessage) throws IOException {
+        CompactGraphCodec.encode(graph, outputMessage.getBody());
+    }
+}
@@ -0,0 +1,83 @@
+package com.ainote.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Configuration
+public class EmbeddingBatchConfig {
+
+    /**
+     * 包装容器中的 EmbeddingModel：开启时内层为 {@link BatchingEmbeddingModel}（查询向量微批处理），
+     * 外层始终为 {@link RecentQueryEmbeddingModel}（最近查询向量复用），VectorStore 等所有使用方自动生效。
+     */
+    @Bean
+    public static BeanPostProcessor embeddingModelPostProcessor(Environment env,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        boolean enabled = env.getProperty("ainote.embedding.batch.enabled", Boolean.class, true);
+        long windowMillis = env.getProperty("ainote.embedding.batch.window-ms", Long.class, 5L);
+        int maxBatchSize = env.getProperty("ainote.embedding.batch.max-size", Integer.class, 16);
+        int dispatchThreads = env.getProperty("ainote.embedding.batch.dispatch-threads", Integer.class, 4);
+        long timeoutMillis = env.getProperty("ainote.embedding.batch.timeout-ms", Long.class, 30000L);
+        long recentCacheSize = env.getProperty("ainote.embedding.recent-cache-size", Long.class, 1000L);
+
+        return new EmbeddingModelPostProcessor(enabled, windowMillis, maxBatchSize, dispatchThreads, timeoutMillis,
+                recentCacheSize, meterRegistryProvider);
+    }
+
+    private static class EmbeddingModelPostProcessor implements BeanPostProcessor, DisposableBean {
+
+        private final boolean enabled;
+        private final long windowMillis;
+        private final int maxBatchSize;
+        private final int dispatchThreads;
+        private final long timeoutMillis;
+        private final long recentCacheSize;
+        private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+        private final List<BatchingEmbeddingModel> created = new ArrayList<>();
+
+        EmbeddingModelPostProcessor(boolean enabled, long windowMillis, int maxBatchSize, int dispatchThreads,
+                long timeoutMillis, long recentCacheSize, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+            this.enabled = enabled;
+            this.windowMillis = windowMillis;
+            this.maxBatchSize = maxBatchSize;
+            this.dispatchThreads = dispatchThreads;
+            this.timeoutMillis = timeoutMillis;
+            this.recentCacheSize = recentCacheSize;
+            this.meterRegistryProvider = meterRegistryProvider;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof EmbeddingModel model) || bean instanceof RecentQueryEmbeddingModel
+                    || bean instanceof BatchingEmbeddingModel) {
+                return bean;
+            }
+            EmbeddingModel wrapped = model;
+            if (enabled) {
+                log.info("Wrapping EmbeddingModel bean [{}] with micro-batching (window={}ms, maxBatch={})",
+                        beanName, windowMillis, maxBatchSize);
+                BatchingEmbeddingModel batching = new BatchingEmbeddingModel(model, windowMillis, maxBatchSize,
+                        dispatchThreads, timeoutMillis, meterRegistryProvider.getObject());
+                created.add(batching);
+                wrapped = batching;
+            }
+            return new RecentQueryEmbeddingModel(wrapped, recentCacheSize);
+        }
+
+        @Override
+        public void destroy() {
+            created.forEach(BatchingEmbeddingModel::shutdown);
+        }
+    }
+}
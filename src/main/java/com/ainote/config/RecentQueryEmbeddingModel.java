@@ -0,0 +1,66 @@
+package com.ainote.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 最近查询向量的 LRU 装饰器：同一查询在一次请求内被多处嵌入（如会话检索复用判断后再由 VectorStore 做向量检索）时只调用一次模型。
+ * <p>
+ * 始终包裹在最外层，不依赖微批处理是否开启；文档入库与显式批量调用直接透传。
+ */
+public class RecentQueryEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final Cache<String, List<Double>> recentEmbeddings;
+
+    public RecentQueryEmbeddingModel(EmbeddingModel delegate, long maxEntries) {
+        this.delegate = delegate;
+        this.recentEmbeddings = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        List<Double> recent = recentEmbeddings.getIfPresent(text);
+        if (recent != null) {
+            return recent;
+        }
+        List<Double> embedding = delegate.embed(text);
+        recentEmbeddings.put(text, embedding);
+        return embedding;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public List<List<Double>> embed(List<String> texts) {
+        return delegate.embed(texts);
+    }
+
+    @Override
+    public EmbeddingResponse embedForResponse(List<String> texts) {
+        return delegate.embedForResponse(texts);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
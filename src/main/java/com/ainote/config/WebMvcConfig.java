@@ -0,0 +1,17 @@
+package com.ainote.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // 放在末尾：只有显式声明 Accept: application/x-ainote-graph 时才会选中
+        converters.add(new CompactGraphHttpMessageConverter());
+    }
+}
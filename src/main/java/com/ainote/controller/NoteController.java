@@ -7,12 +7,14 @@ import com.ainote.dto.ChatRequestDTO;
 import com.ainote.dto.ChatResponseDTO;
 import com.ainote.dto.DrilledPropositionDTO;
 import com.ainote.dto.GraphDataDTO;
+import com.ainote.dto.GraphDeltaDTO;
 import com.ainote.dto.NoteAnalysisResult;
 import com.ainote.dto.NoteHistoryDTO;
 import com.ainote.dto.NoteRequestDTO;
 import com.ainote.dto.NoteResponseDTO;
 import com.ainote.dto.NoteSummaryDTO;
 import com.ainote.dto.PolishRequestDTO;
+import com.ainote.dto.RevisionDiffDTO;
 import com.ainote.dto.SearchResultDTO;
 import com.ainote.dto.TagStatDTO;
 import com.ainote.entity.Note;
@@ -24,6 +26,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -105,6 +108,27 @@ public class NoteController {
         return results;
     }
 
+    @GetMapping("/search/page")
+    public PageData<SearchResultDTO> searchPage(@RequestParam(required = false) String query,
+            @RequestParam(defaultValue = "0.6") double threshold,
+            @RequestParam(required = false) Integer topK,
+            @RequestParam(required = false) Integer candidates,
+            @RequestParam(required = false) String cursor) {
+        if ((query == null || query.isBlank()) && (cursor == null || cursor.isBlank())) {
+            throw new BusinessException(ErrorCodeEnum.PARAM_ERROR, "Either query or cursor is required");
+        }
+        log.debug("Received paged search request. Query: [{}], TopK: {}, Candidates: {}, Cursor: [{}]",
+                query, topK, candidates, cursor);
+        return noteService.searchPage(query, threshold, topK, candidates, cursor);
+    }
+
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<List<SearchResultDTO>>> streamSearch(@RequestParam String query,
+            @RequestParam(defaultValue = "0.6") double threshold) {
+        log.debug("Received streaming semantic search request. Query: [{}], Threshold: {}", query, threshold);
+        return noteService.streamSemanticSearch(query, threshold);
+    }
+
     @GetMapping("/{id}")
     public Note getNote(@PathVariable String id) {
         return noteService.getNote(id);
@@ -122,10 +146,7 @@ public class NoteController {
 
     @GetMapping("/{id}/status")
     public Map<String, String> getNoteStatus(@PathVariable String id) {
-        Note note = noteService.getNote(id);
-        return Map.of(
-                "status", note.getStatus() != null ? note.getStatus().name() : "UNKNOWN",
-                "message", note.getStatusMessage() != null ? note.getStatusMessage() : "");
+        return noteService.getNoteStatus(id);
     }
 
     @PutMapping("/{id}")
@@ -181,12 +202,26 @@ public class NoteController {
         return noteService.getKnowledgeGraph(domain);
     }
 
+    // 携带已持有的图谱版本号时只返回增量
+    @GetMapping(value = "/graph", params = "sinceVersion")
+    public GraphDeltaDTO getKnowledgeGraphDelta(@RequestParam long sinceVersion,
+            @RequestParam(required = false) String domain) {
+        return noteService.getKnowledgeGraphDelta(sinceVersion, domain);
+    }
+
     @PostMapping(value = "/ai/polish/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<String> streamPolishText(@RequestBody PolishRequestDTO request) {
         log.info("Received Inline AI Polish stream request for instruction: [{}]", request.getInstruction());
         return noteService.streamPolishText(request);
     }
 
+    // 大规模语料的分层视图：返回折叠后的簇节点，通过 /graph/expand?nodeType=cluster 下钻
+    @GetMapping("/graph/clusters")
+    public GraphDataDTO getClusteredGraph(@RequestParam(required = false) String domain,
+            @RequestParam(required = false) Integer maxNodes) {
+        return noteService.getClusteredGraph(domain, maxNodes);
+    }
+
     @GetMapping("/graph/init")
     public GraphDataDTO getInitialGraph() {
         return noteService.getInitialGraph();
@@ -204,6 +239,21 @@ public class NoteController {
         return noteService.getNoteHistory(id);
     }
 
+    // 游标分页的历史列表，total 为修订总数；单个修订的完整内容通过 /{id}/history/{rev} 按需获取
+    @GetMapping("/{id}/history/page")
+    public PageData<NoteHistoryDTO> getNoteHistoryPage(@PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return noteService.getNoteHistoryPage(id, cursor, size);
+    }
+
+    // 两个修订之间正文的 unified diff
+    @GetMapping("/{id}/history/diff")
+    public RevisionDiffDTO diffNoteRevisions(@PathVariable String id, @RequestParam Long from,
+            @RequestParam Long to) {
+        return noteService.diffNoteRevisions(id, from, to);
+    }
+
     @GetMapping("/{id}/history/{rev}")
     public Note getNoteRevision(@PathVariable String id, @PathVariable Long rev) {
         return noteService.getNoteRevision(id, rev);
@@ -226,6 +276,14 @@ public class NoteController {
                 request.getFilterType(), request.getSessionId());
     }
 
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChat(@RequestBody ChatRequestDTO request) {
+        log.info("Received streaming Chat Request. Query: [{}], SessionId: [{}]", request.getQuery(),
+                request.getSessionId());
+        return noteService.streamChatWithNotes(request.getQuery(), request.getFilterDomain(),
+                request.getFilterType(), request.getSessionId());
+    }
+
     @GetMapping("/tags")
     public Map<String, List<TagStatDTO>> getKnowledgeTags() {
         return noteService.getKnowledgeTags();
@@ -11,6 +11,8 @@ import java.util.List;
 public class GraphDataDTO {
     private List<NodeDTO> nodes;
     private List<LinkDTO> links;
+    // 服务端图谱模型版本，可作为 /graph?sinceVersion= 的起点拉取增量
+    private long version;
 
     @Data
     @NoArgsConstructor
@@ -29,5 +31,11 @@ public class GraphDataDTO {
         private String source;
         private String target;
         private String type;
+        // 连线强度：实体共现连线为 NPMI（-1 ~ 1），其余结构性连线为 1
+        private double weight;
+
+        public LinkDTO(String source, String target, String type) {
+            this(source, target, type, 1.0);
+        }
     }
 }
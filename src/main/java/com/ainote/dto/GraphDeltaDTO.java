@@ -0,0 +1,24 @@
+package com.ainote.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 知识图谱增量：客户端持有 fromVersion 版本时，应用本增量即得到 version 版本。
+ * full 为 true 时表示增量日志已无法覆盖该版本，upsertedNodes / addedLinks 即完整快照，客户端应整体替换。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GraphDeltaDTO {
+    private long fromVersion;
+    private long version;
+    private boolean full;
+    private List<GraphDataDTO.NodeDTO> upsertedNodes;
+    private List<String> removedNodeIds;
+    private List<GraphDataDTO.LinkDTO> addedLinks;
+    private List<GraphDataDTO.LinkDTO> removedLinks;
+}
@@ -0,0 +1,18 @@
+package com.ainote.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevisionDiffDTO {
+    private Number fromRevision;
+    private Number toRevision;
+    private String fromTitle;
+    private String toTitle;
+    private int addedLines;
+    private int removedLines;
+    private String diff; // 正文的 unified diff（不含文件头）
+}
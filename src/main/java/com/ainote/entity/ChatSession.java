@@ -0,0 +1,40 @@
+package com.ainote.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "chat_sessions", indexes = {
+        @Index(name = "idx_chat_sessions_updated", columnList = "updated_at")
+})
+@Data
+public class ChatSession {
+
+    @Id
+    @Column(name = "id")
+    private String id;
+
+    // 已折叠（移出消息窗口）的历史对话的滚动摘要
+    @Column(name = "summary", columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        if (createdAt == null) createdAt = now;
+        updatedAt = now;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
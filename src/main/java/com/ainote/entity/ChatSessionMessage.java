@@ -0,0 +1,43 @@
+package com.ainote.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UuidGenerator;
+import org.springframework.ai.chat.messages.MessageType;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_session_seq", columnList = "session_id, seq")
+})
+@Data
+public class ChatSessionMessage {
+
+    @Id
+    @UuidGenerator
+    @Column(columnDefinition = "VARCHAR(36)")
+    private String id;
+
+    @Column(name = "session_id", nullable = false)
+    private String sessionId;
+
+    // 会话内单调递增的序号，保证同一毫秒内写入的问答顺序稳定
+    @Column(name = "seq", nullable = false)
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "role", nullable = false)
+    private MessageType role;
+
+    @Column(name = "content", columnDefinition = "TEXT", nullable = false)
+    private String content;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ainote.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 持久化的实体百科。来源笔记变化后标记为过期，保留旧正文供下次重新生成时参考。
+ */
+@Entity
+@Table(name = "entity_wikis")
+@Data
+public class EntityWiki {
+
+    @Id
+    @Column(name = "entity_name", columnDefinition = "TEXT")
+    private String entityName;
+
+    @Column(name = "content", columnDefinition = "TEXT", nullable = false)
+    private String content;
+
+    @Column(name = "stale", nullable = false)
+    private boolean stale;
+
+    @Column(name = "generated_at")
+    private LocalDateTime generatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void touch() {
+        generatedAt = LocalDateTime.now();
+    }
+}
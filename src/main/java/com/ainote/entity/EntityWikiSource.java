@@ -0,0 +1,38 @@
+package com.ainote.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UuidGenerator;
+
+/**
+ * 百科的来源笔记及生成时的版本号，用于在来源变化时定位并失效对应百科；
+ * fragment_hash 为该笔记参与合成的碎片摘要，重新生成时据此判断哪些来源真正发生了变化。
+ */
+@Entity
+@Table(name = "entity_wiki_sources", indexes = {
+        @Index(name = "idx_entity_wiki_sources_entity", columnList = "entity_name"),
+        @Index(name = "idx_entity_wiki_sources_note", columnList = "note_id")
+})
+@Data
+public class EntityWikiSource {
+
+    @Id
+    @UuidGenerator
+    @Column(columnDefinition = "VARCHAR(36)")
+    private String id;
+
+    @Column(name = "entity_name", columnDefinition = "TEXT", nullable = false)
+    private String entityName;
+
+    @Column(name = "note_id", nullable = false)
+    private String noteId;
+
+    @Column(name = "note_version", nullable = false)
+    private long noteVersion;
+
+    @Column(name = "note_title", columnDefinition = "TEXT")
+    private String noteTitle;
+
+    @Column(name = "fragment_hash", length = 32)
+    private String fragmentHash;
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
@@ -23,6 +24,8 @@ public class Note {
     @Column(columnDefinition = "TEXT")
     private String title;
 
+    // 正文与 AI 元数据的历史由 NoteRevisionStore 以快照 + 增量保存，不进入 Envers 审计表
+    @NotAudited
     @Column(columnDefinition = "TEXT")
     private String content;
 
@@ -39,15 +42,13 @@ public class Note {
     @Column(name = "status")
     private NoteStatus status;
 
-    @Column(name = "status_message", columnDefinition = "TEXT")
-    private String statusMessage;
-
     @Version
     private long version;
 
     @Column(name = "deleted")
     private boolean deleted = false;
 
+    @NotAudited
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "ai_metadata", columnDefinition = "jsonb")
     private NoteAnalysisResult aiMetadata;
@@ -0,0 +1,31 @@
+package com.ainote.entity;
+
+import com.ainote.enums.NoteStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 笔记异步处理的进度（状态 + 提示信息），与 notes 表分离且不审计，
+ * 频繁的进度更新不再产生 Note 的版本号递增与 Envers 修订。
+ */
+@Entity
+@Table(name = "note_progress")
+@Data
+public class NoteProgress {
+
+    @Id
+    @Column(name = "note_id")
+    private String noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private NoteStatus status;
+
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,53 @@
+package com.ainote.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.LocalDateTime;
+
+/**
+ * 笔记正文与 AI 元数据的历史版本，按笔记 @Version 号索引（Envers 审计表已不再保存这两个大字段）。
+ * <p>
+ * snapshot 为 true 时 content 是完整正文，否则是相对上一条记录的行级增量（见 LineDelta）；
+ * ai_metadata 在快照中总是完整保存，在增量记录中为 null 表示与上一条相同。
+ * 只有正文或元数据真正变化的保存才会产生记录，状态更新等不产生。
+ */
+@Entity
+@Table(name = "note_revision_contents", indexes = {
+        @Index(name = "idx_note_revision_contents_note_version", columnList = "note_id, note_version")
+})
+@Data
+public class NoteRevisionContent {
+
+    @Id
+    @UuidGenerator
+    @Column(columnDefinition = "VARCHAR(36)")
+    private String id;
+
+    @Column(name = "note_id", nullable = false)
+    private String noteId;
+
+    @Column(name = "note_version", nullable = false)
+    private long noteVersion;
+
+    @Column(name = "snapshot", nullable = false)
+    private boolean snapshot;
+
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "content_hash", length = 32)
+    private String contentHash;
+
+    @Column(name = "ai_metadata", columnDefinition = "TEXT")
+    private String aiMetadata;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ainote.entity;
+
+import com.ainote.enums.NoteTagType;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UuidGenerator;
+
+/**
+ * ai_metadata 中实体 / 领域 / 内容类别的规范化副本，每个标签一行，仅保存未删除的笔记。
+ * 子串联想使用的 pg_trgm GIN 索引见 schema.sql。
+ */
+@Entity
+@Table(name = "note_tags", indexes = {
+        @Index(name = "idx_note_tags_type_name", columnList = "tag_type, name"),
+        @Index(name = "idx_note_tags_note", columnList = "note_id")
+})
+@Data
+public class NoteTag {
+
+    @Id
+    @UuidGenerator
+    @Column(columnDefinition = "VARCHAR(36)")
+    private String id;
+
+    @Column(name = "note_id", nullable = false)
+    private String noteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tag_type", nullable = false, length = 20)
+    private NoteTagType tagType;
+
+    @Column(name = "name", columnDefinition = "TEXT", nullable = false)
+    private String name;
+}
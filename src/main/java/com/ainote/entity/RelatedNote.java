@@ -0,0 +1,52 @@
+package com.ainote.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.time.LocalDateTime;
+
+/**
+ * 预计算的相关笔记：note_id 的推荐列表中的一项。
+ * <p>
+ * derived = false 的行由 note_id 自己的刷新写入；derived = true 的行是 related_note_id 刷新时顺带写入的反向边，
+ * 只有推导出它的一方会更新或删除。note_id = related_note_id 的行是“推荐已计算”标记，读取时过滤。
+ */
+@Entity
+@Table(name = "related_notes", indexes = {
+        @Index(name = "idx_related_notes_note_score", columnList = "note_id, score DESC"),
+        @Index(name = "idx_related_notes_related", columnList = "related_note_id")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_related_notes_pair", columnNames = { "note_id",
+        "related_note_id" }))
+@Data
+public class RelatedNote {
+
+    @Id
+    @UuidGenerator
+    @Column(columnDefinition = "VARCHAR(36)")
+    private String id;
+
+    @Column(name = "note_id", nullable = false)
+    private String noteId;
+
+    @Column(name = "related_note_id", nullable = false)
+    private String relatedNoteId;
+
+    @Column(name = "score", nullable = false)
+    private double score;
+
+    @Column(name = "reason", columnDefinition = "TEXT")
+    private String reason;
+
+    @Column(name = "derived", nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private boolean derived;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,11 @@
+package com.ainote.enums;
+
+public enum NoteChangeType {
+    ANALYZED,
+    CONTENT_UPDATED,
+    METADATA_UPDATED,
+    MERGED,
+    ROLLED_BACK,
+    DELETED,
+    RESTORED
+}
@@ -0,0 +1,7 @@
+package com.ainote.enums;
+
+public enum NoteTagType {
+    ENTITY,
+    DOMAIN,
+    CONTENT_TYPE
+}
@@ -0,0 +1,26 @@
+package com.ainote.event;
+
+import com.ainote.enums.NoteChangeType;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 笔记内容、元数据或生命周期发生变化后发布，供派生数据（相关推荐等）增量维护。
+ */
+public class NoteChangedEvent extends ApplicationEvent {
+    private final String noteId;
+    private final NoteChangeType changeType;
+
+    public NoteChangedEvent(Object source, String noteId, NoteChangeType changeType) {
+        super(source);
+        this.noteId = noteId;
+        this.changeType = changeType;
+    }
+
+    public String getNoteId() {
+        return noteId;
+    }
+
+    public NoteChangeType getChangeType() {
+        return changeType;
+    }
+}
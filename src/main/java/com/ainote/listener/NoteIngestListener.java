@@ -15,7 +15,7 @@ public class NoteIngestListener {
 
     private final NoteService noteService;
 
-    @Async
+    @Async("llmExecutor")
     @EventListener
     public void onNoteIngest(NoteIngestEvent event) {
         log.info("Processing note async: {}", event.getNoteId());
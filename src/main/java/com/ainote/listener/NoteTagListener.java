@@ -0,0 +1,29 @@
+package com.ainote.listener;
+
+import com.ainote.event.NoteChangedEvent;
+import com.ainote.service.NoteTagService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NoteTagListener {
+
+    private final NoteTagService noteTagService;
+
+    // 事务提交后同步维护标签表，使标签查询与 ai_metadata 保持一致
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        try {
+            switch (event.getChangeType()) {
+                case DELETED -> noteTagService.remove(event.getNoteId());
+                default -> noteTagService.sync(event.getNoteId());
+            }
+        } catch (Exception e) {
+            log.error("Failed to sync tags for Note [{}]: {}", event.getNoteId(), e.getMessage(), e);
+        }
+    }
+}
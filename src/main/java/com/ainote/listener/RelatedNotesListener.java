@@ -0,0 +1,35 @@
+package com.ainote.listener;
+
+import com.ainote.event.NoteChangedEvent;
+import com.ainote.service.NoteService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RelatedNotesListener {
+
+    private final NoteService noteService;
+
+    // 在事务提交后（或无事务时立即）异步维护预计算的相关笔记表
+    @Async("llmExecutor")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        try {
+            switch (event.getChangeType()) {
+                case ANALYZED, METADATA_UPDATED, MERGED, ROLLED_BACK ->
+                    noteService.refreshRelatedNotes(event.getNoteId());
+                case DELETED -> noteService.removeRelatedNotes(event.getNoteId());
+                default -> {
+                    // 正文变更（OUTDATED）或恢复后会重新走分析流程，届时再刷新
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to maintain related notes for Note [{}]: {}", event.getNoteId(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ainote.repository;
+
+import com.ainote.entity.ChatSessionMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChatSessionMessageRepository extends JpaRepository<ChatSessionMessage, String> {
+
+        // 按序号倒序读取最近的消息（调用方自行反转为时间正序）
+        List<ChatSessionMessage> findBySessionIdOrderBySeqDesc(String sessionId, Pageable pageable);
+
+        @Transactional
+        @Modifying
+        @Query("DELETE FROM ChatSessionMessage m WHERE m.sessionId = :sessionId AND m.seq <= :seq")
+        void deleteUpToSeq(@Param("sessionId") String sessionId, @Param("seq") long seq);
+
+        @Transactional
+        @Modifying
+        void deleteBySessionId(String sessionId);
+
+        @Transactional
+        @Modifying
+        // 只删除会话行已不存在的消息：会话在删除后立即被续聊重建时，保留其新消息
+        @Query("DELETE FROM ChatSessionMessage m WHERE m.sessionId IN :sessionIds "
+                        + "AND NOT EXISTS (SELECT 1 FROM ChatSession s WHERE s.id = m.sessionId)")
+        int deleteOrphanedBySessionIdIn(@Param("sessionIds") Collection<String> sessionIds);
+}
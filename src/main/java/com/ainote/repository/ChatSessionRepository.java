@@ -0,0 +1,21 @@
+package com.ainote.repository;
+
+import com.ainote.entity.ChatSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ChatSessionRepository extends JpaRepository<ChatSession, String> {
+
+        // 删除一批空闲超过保留期的会话（走 idx_chat_sessions_updated），返回实际删除的 ID；
+        // 删除与判定在同一条语句内完成，不会误删查询之后恰好被续聊的会话
+        @Transactional
+        @Query(nativeQuery = true, value = "DELETE FROM chat_sessions WHERE id IN (SELECT id FROM chat_sessions WHERE updated_at < :cutoff LIMIT :limit) AND updated_at < :cutoff RETURNING id")
+        List<String> deleteIdleSessions(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,22 @@
+package com.ainote.repository;
+
+import com.ainote.entity.EntityWiki;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+@Repository
+public interface EntityWikiRepository extends JpaRepository<EntityWiki, String> {
+
+        // 由事务提交后的 NoteChangedEvent 监听器调用，发布方事务已结束，须在新事务中提交
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        @Modifying
+        @Query("UPDATE EntityWiki w SET w.stale = true WHERE w.entityName IN :entityNames AND w.stale = false")
+        int markStale(@Param("entityNames") Collection<String> entityNames);
+}
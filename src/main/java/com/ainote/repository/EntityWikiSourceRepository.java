@@ -0,0 +1,24 @@
+package com.ainote.repository;
+
+import com.ainote.entity.EntityWikiSource;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface EntityWikiSourceRepository extends JpaRepository<EntityWikiSource, String> {
+
+        List<EntityWikiSource> findByEntityName(String entityName);
+
+        @Query("SELECT DISTINCT s.entityName FROM EntityWikiSource s WHERE s.noteId = :noteId")
+        List<String> findEntityNamesByNoteId(@Param("noteId") String noteId);
+
+        @Transactional
+        @Modifying
+        void deleteByEntityName(String entityName);
+}
@@ -20,4 +20,25 @@ public interface NoteChunkRepository extends JpaRepository<NoteChunk, String> {
     @Transactional
     @Modifying
     void deleteByNoteId(String noteId);
+
+    // 以下为历史内容版本的分块归档（note_chunk_archive，见 schema.sql），与 vector_store_archive 成对维护
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO note_chunk_archive (id, note_id, content_hash, content, chunk_index, chunk_type) SELECT id, note_id, :contentHash, content, chunk_index, chunk_type FROM note_chunks WHERE note_id = :noteId")
+    int archiveChunks(@Param("noteId") String noteId, @Param("contentHash") String contentHash);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO note_chunks (id, note_id, content, chunk_index, chunk_type) SELECT id, note_id, content, chunk_index, chunk_type FROM note_chunk_archive WHERE note_id = :noteId AND content_hash = :contentHash")
+    int restoreArchivedChunks(@Param("noteId") String noteId, @Param("contentHash") String contentHash);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM note_chunk_archive WHERE note_id = :noteId AND content_hash = :contentHash")
+    void deleteArchivedChunks(@Param("noteId") String noteId, @Param("contentHash") String contentHash);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM note_chunk_archive WHERE note_id = :noteId AND content_hash NOT IN (SELECT content_hash FROM note_chunk_archive WHERE note_id = :noteId GROUP BY content_hash ORDER BY max(archived_at) DESC LIMIT :keep)")
+    void pruneArchivedChunks(@Param("noteId") String noteId, @Param("keep") int keep);
 }
@@ -0,0 +1,9 @@
+package com.ainote.repository;
+
+import com.ainote.entity.NoteProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface NoteProgressRepository extends JpaRepository<NoteProgress, String> {
+}
@@ -29,44 +29,50 @@ public interface NoteRepository extends JpaRepository<Note, String> {
         @Query("UPDATE Note n SET n.deleted = true WHERE n.id = :id")
         void softDelete(String id);
 
-        @Query(nativeQuery = true, value = "SELECT entity, count(*) as cnt FROM (SELECT jsonb_array_elements_text(ai_metadata->'entities') as entity FROM notes WHERE deleted = false AND ai_metadata IS NOT NULL AND ai_metadata->'entities' IS NOT NULL) sub WHERE entity IS NOT NULL GROUP BY entity ORDER BY cnt DESC LIMIT 20")
+        // 标签类查询均走 note_tags 规范化表（仅含未删除笔记），见 NoteTagService
+        @Query(nativeQuery = true, value = "SELECT name as entity, count(*) as cnt FROM note_tags WHERE tag_type = 'ENTITY' GROUP BY name ORDER BY cnt DESC LIMIT 20")
         List<Object[]> countTopEntities();
 
-        @Query(nativeQuery = true, value = "SELECT ai_metadata->>'primaryDomain' as domain, count(*) as cnt FROM notes WHERE deleted = false AND ai_metadata IS NOT NULL AND ai_metadata->>'primaryDomain' IS NOT NULL GROUP BY domain ORDER BY cnt DESC LIMIT 20")
+        @Query(nativeQuery = true, value = "SELECT name as domain, count(*) as cnt FROM note_tags WHERE tag_type = 'DOMAIN' GROUP BY name ORDER BY cnt DESC LIMIT 20")
         List<Object[]> countTopDomains();
 
-        @Query(nativeQuery = true, value = "SELECT ai_metadata->>'contentType' as type, count(*) as cnt FROM notes WHERE deleted = false AND ai_metadata IS NOT NULL AND ai_metadata->>'contentType' IS NOT NULL GROUP BY type ORDER BY cnt DESC LIMIT 20")
+        @Query(nativeQuery = true, value = "SELECT name as type, count(*) as cnt FROM note_tags WHERE tag_type = 'CONTENT_TYPE' GROUP BY name ORDER BY cnt DESC LIMIT 20")
         List<Object[]> countTopContentTypes();
 
         @Query(nativeQuery = true, value = "SELECT id, title, ai_metadata->'entities' as entities FROM notes WHERE deleted = false AND (:domain IS NULL OR ai_metadata->>'primaryDomain' = :domain)")
         List<Object[]> findNotesForGraph(@Param("domain") String domain);
 
+        // 内存实体索引重建：一次性加载所有活跃笔记的标题与分类元数据
+        @Query(nativeQuery = true, value = "SELECT id, title, ai_metadata->>'primaryDomain' as domain, ai_metadata->>'contentType' as contentType, CAST(ai_metadata->'entities' as text) as entities FROM notes WHERE deleted = false")
+        List<Object[]> findNotesForIndex();
+
         @Query(nativeQuery = true, value = "SELECT * FROM notes WHERE deleted = false AND (:domain IS NULL OR ai_metadata->>'primaryDomain' = :domain) AND (:type IS NULL OR ai_metadata->>'contentType' = :type)", countQuery = "SELECT count(*) FROM notes WHERE deleted = false AND (:domain IS NULL OR ai_metadata->>'primaryDomain' = :domain) AND (:type IS NULL OR ai_metadata->>'contentType' = :type)")
         Page<Note> findByFilters(
                         @Param("domain") String domain,
                         @Param("type") String type,
                         Pageable pageable);
 
-        @Query(nativeQuery = true, value = "SELECT DISTINCT jsonb_array_elements_text(ai_metadata->'entities') FROM notes WHERE deleted = false AND ai_metadata->>'primaryDomain' = :domain")
+        @Query(nativeQuery = true, value = "SELECT DISTINCT e.name FROM note_tags d JOIN note_tags e ON e.note_id = d.note_id AND e.tag_type = 'ENTITY' WHERE d.tag_type = 'DOMAIN' AND d.name = :domain")
         List<String> findEntitiesByDomain(@Param("domain") String domain);
 
-        @Query(nativeQuery = true, value = "SELECT id, title, ai_metadata->>'contentType' as contentType FROM notes WHERE deleted = false AND ai_metadata->'entities' @> jsonb_build_array(:entityName)")
+        @Query(nativeQuery = true, value = "SELECT n.id, n.title, n.ai_metadata->>'contentType' as contentType FROM note_tags t JOIN notes n ON n.id = t.note_id WHERE t.tag_type = 'ENTITY' AND t.name = :entityName AND n.deleted = false")
         List<Object[]> findNotesByEntity(
                         @Param("entityName") String entityName);
 
-        @Query(nativeQuery = true, value = "SELECT jsonb_array_elements_text(ai_metadata->'entities') FROM notes WHERE id = :noteId AND deleted = false")
+        @Query(nativeQuery = true, value = "SELECT name FROM note_tags WHERE note_id = :noteId AND tag_type = 'ENTITY'")
         List<String> findEntitiesByNoteId(@Param("noteId") String noteId);
 
-        @Query(nativeQuery = true, value = "SELECT DISTINCT ai_metadata->>'primaryDomain' FROM notes WHERE deleted = false AND ai_metadata->>'primaryDomain' ILIKE CONCAT('%', :keyword, '%') LIMIT 10")
+        // 子串联想命中 pg_trgm GIN 索引，按使用次数排序
+        @Query(nativeQuery = true, value = "SELECT name FROM note_tags WHERE tag_type = 'DOMAIN' AND name ILIKE CONCAT('%', :keyword, '%') GROUP BY name ORDER BY count(*) DESC LIMIT 10")
         List<String> suggestDomains(@Param("keyword") String keyword);
 
-        @Query(nativeQuery = true, value = "SELECT DISTINCT ai_metadata->>'contentType' FROM notes WHERE deleted = false AND ai_metadata->>'contentType' ILIKE CONCAT('%', :keyword, '%') LIMIT 10")
+        @Query(nativeQuery = true, value = "SELECT name FROM note_tags WHERE tag_type = 'CONTENT_TYPE' AND name ILIKE CONCAT('%', :keyword, '%') GROUP BY name ORDER BY count(*) DESC LIMIT 10")
         List<String> suggestContentTypes(@Param("keyword") String keyword);
 
-        @Query(nativeQuery = true, value = "SELECT DISTINCT el FROM notes n, jsonb_array_elements_text(n.ai_metadata->'entities') el WHERE n.deleted = false AND el ILIKE CONCAT('%', :keyword, '%') LIMIT 10")
+        @Query(nativeQuery = true, value = "SELECT name FROM note_tags WHERE tag_type = 'ENTITY' AND name ILIKE CONCAT('%', :keyword, '%') GROUP BY name ORDER BY count(*) DESC LIMIT 10")
         List<String> suggestEntities(@Param("keyword") String keyword);
 
-        @Query(nativeQuery = true, value = "SELECT DISTINCT n.id, n.title, n.ai_metadata->>'contentType' as contentType, CAST(n.ai_metadata->'entities' as text) as entities FROM notes n JOIN jsonb_array_elements_text(n.ai_metadata->'entities') e ON true WHERE n.deleted = false AND n.id != :noteId AND e IN (:entities)")
+        @Query(nativeQuery = true, value = "SELECT DISTINCT n.id, n.title, n.ai_metadata->>'contentType' as contentType, CAST(n.ai_metadata->'entities' as text) as entities FROM note_tags t JOIN notes n ON n.id = t.note_id WHERE t.tag_type = 'ENTITY' AND t.name IN (:entities) AND t.note_id != :noteId AND n.deleted = false")
         List<Object[]> findNotesSharingEntities(
                         @Param("noteId") String noteId,
                         @Param("entities") List<String> entities);
@@ -76,9 +82,37 @@ public interface NoteRepository extends JpaRepository<Note, String> {
         @Query(nativeQuery = true, value = "DELETE FROM vector_store WHERE metadata->>'note_id' = :noteId")
         void deleteVectorsByNoteId(@Param("noteId") String noteId);
 
-        // 第三阶段宏轨道 A 过滤器：查找实体标签中包含指定概念的所有笔记 ID
-        @Query(nativeQuery = true, value = "SELECT id FROM notes WHERE deleted = false AND (ai_metadata->'entities' @> CAST(:concept AS jsonb) OR ai_metadata->>'primaryDomain' = :conceptStr OR ai_metadata->>'contentType' = :conceptStr)")
-        List<String> findNoteIdsByEntityLike(
-                        @Param("concept") String jsonConcept,
-                        @Param("conceptStr") String conceptStr);
+        // 当前向量对应的正文 MD5（vectorizeContent 写入 metadata.content_hash；旧数据为 null）
+        @Query(nativeQuery = true, value = "SELECT metadata->>'content_hash' FROM vector_store WHERE metadata->>'note_id' = :noteId LIMIT 1")
+        String findVectorContentHash(@Param("noteId") String noteId);
+
+        @Modifying
+        @Transactional
+        @Query(nativeQuery = true, value = "INSERT INTO vector_store_archive (id, note_id, content_hash, content, metadata, embedding) SELECT id, :noteId, :contentHash, content, metadata, embedding FROM vector_store WHERE metadata->>'note_id' = :noteId")
+        int archiveVectors(@Param("noteId") String noteId, @Param("contentHash") String contentHash);
+
+        @Query(nativeQuery = true, value = "SELECT count(*) FROM vector_store_archive WHERE note_id = :noteId AND content_hash = :contentHash")
+        long countArchivedVectors(@Param("noteId") String noteId, @Param("contentHash") String contentHash);
+
+        // 恢复时用当前的标题 / 领域 / 类别覆盖归档时的元数据
+        @Modifying
+        @Transactional
+        @Query(nativeQuery = true, value = "INSERT INTO vector_store (id, content, metadata, embedding) SELECT id, content, CAST((CAST(metadata AS jsonb) - 'primaryDomain' - 'contentType') || CAST(:metadataPatch AS jsonb) AS json), embedding FROM vector_store_archive WHERE note_id = :noteId AND content_hash = :contentHash")
+        int restoreArchivedVectors(@Param("noteId") String noteId, @Param("contentHash") String contentHash,
+                        @Param("metadataPatch") String metadataPatch);
+
+        @Modifying
+        @Transactional
+        @Query(nativeQuery = true, value = "DELETE FROM vector_store_archive WHERE note_id = :noteId AND content_hash = :contentHash")
+        void deleteArchivedVectors(@Param("noteId") String noteId, @Param("contentHash") String contentHash);
+
+        // 只保留最近归档的 keep 个内容版本
+        @Modifying
+        @Transactional
+        @Query(nativeQuery = true, value = "DELETE FROM vector_store_archive WHERE note_id = :noteId AND content_hash NOT IN (SELECT content_hash FROM vector_store_archive WHERE note_id = :noteId GROUP BY content_hash ORDER BY max(archived_at) DESC LIMIT :keep)")
+        void pruneArchivedVectors(@Param("noteId") String noteId, @Param("keep") int keep);
+
+        // 第三阶段宏轨道 A 过滤器：实体、领域或内容类别与概念精确相等的所有笔记 ID
+        @Query(nativeQuery = true, value = "SELECT DISTINCT note_id FROM note_tags WHERE name = :concept")
+        List<String> findNoteIdsByEntityLike(@Param("concept") String concept);
 }
@@ -0,0 +1,20 @@
+package com.ainote.repository;
+
+import com.ainote.entity.NoteRevisionContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NoteRevisionContentRepository extends JpaRepository<NoteRevisionContent, String> {
+
+        Optional<NoteRevisionContent> findTopByNoteIdOrderByNoteVersionDesc(String noteId);
+
+        Optional<NoteRevisionContent> findTopByNoteIdAndNoteVersionLessThanEqualAndSnapshotTrueOrderByNoteVersionDesc(
+                        String noteId, long noteVersion);
+
+        List<NoteRevisionContent> findByNoteIdAndNoteVersionBetweenOrderByNoteVersionAsc(String noteId,
+                        long fromVersion, long toVersion);
+}
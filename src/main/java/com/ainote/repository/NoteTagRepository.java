@@ -0,0 +1,33 @@
+package com.ainote.repository;
+
+import com.ainote.entity.NoteTag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface NoteTagRepository extends JpaRepository<NoteTag, String> {
+
+        @Transactional
+        @Modifying
+        void deleteByNoteId(String noteId);
+
+        @Transactional
+        @Modifying
+        void deleteByNoteIdIn(List<String> noteIds);
+
+        List<NoteTag> findByNoteIdIn(List<String> noteIds);
+
+        // 启动对账：清除已删除或不存在笔记的残留标签
+        @Transactional
+        @Modifying
+        @Query(nativeQuery = true, value = "DELETE FROM note_tags t WHERE NOT EXISTS (SELECT 1 FROM notes n WHERE n.id = t.note_id AND n.deleted = false)")
+        int deleteOrphaned();
+
+        @Query(nativeQuery = true, value = "SELECT n.id FROM notes n WHERE n.deleted = false ORDER BY n.id")
+        List<String> findActiveNoteIds();
+}
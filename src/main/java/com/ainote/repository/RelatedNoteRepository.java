@@ -0,0 +1,59 @@
+package com.ainote.repository;
+
+import com.ainote.entity.RelatedNote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface RelatedNoteRepository extends JpaRepository<RelatedNote, String> {
+
+        // 推荐列表读取：单次索引扫描 + 主键关联标题，并过滤已删除笔记与“已计算”标记行
+        @Query(nativeQuery = true, value = "SELECT r.related_note_id, n.title, r.score, r.reason FROM related_notes r JOIN notes n ON n.id = r.related_note_id WHERE r.note_id = :noteId AND r.related_note_id <> r.note_id AND n.deleted = false ORDER BY r.score DESC LIMIT :limit")
+        List<Object[]> findTopRelated(@Param("noteId") String noteId, @Param("limit") int limit);
+
+        boolean existsByNoteIdAndRelatedNoteId(String noteId, String relatedNoteId);
+
+        @Transactional
+        @Modifying
+        @Query("DELETE FROM RelatedNote r WHERE r.noteId = :noteId OR r.relatedNoteId = :noteId")
+        void deleteAllInvolving(@Param("noteId") String noteId);
+
+        // 所有刷新的写阶段共用一把事务级 advisory 锁，串行化并发的邻居刷新（写阶段只有几条语句，持锁时间很短）
+        @Query(nativeQuery = true, value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:key)) l")
+        Integer lockForRefresh(@Param("key") long key);
+
+        // 本笔记自己算出的推荐（正向边）
+        @Modifying
+        @Query(nativeQuery = true, value = "DELETE FROM related_notes WHERE note_id = :noteId AND derived = false")
+        int deleteOwnedByNoteId(@Param("noteId") String noteId);
+
+        // 由本笔记的刷新推导出、挂在其他笔记列表中的反向边
+        @Modifying
+        @Query(nativeQuery = true, value = "DELETE FROM related_notes WHERE related_note_id = :noteId AND derived = true")
+        int deleteDerivedFrom(@Param("noteId") String noteId);
+
+        // 正向边覆盖同一对笔记上已有的反向边
+        @Modifying
+        @Query(nativeQuery = true, value = "INSERT INTO related_notes (id, note_id, related_note_id, score, reason, derived, updated_at) VALUES (:id, :noteId, :relatedNoteId, :score, :reason, false, now()) ON CONFLICT (note_id, related_note_id) DO UPDATE SET score = EXCLUDED.score, reason = EXCLUDED.reason, derived = false, updated_at = EXCLUDED.updated_at")
+        int upsertOwned(@Param("id") String id, @Param("noteId") String noteId,
+                        @Param("relatedNoteId") String relatedNoteId, @Param("score") double score,
+                        @Param("reason") String reason);
+
+        // 反向边只在对方尚未自己算出这对推荐时写入，从不覆盖对方拥有的行
+        @Modifying
+        @Query(nativeQuery = true, value = "INSERT INTO related_notes (id, note_id, related_note_id, score, reason, derived, updated_at) VALUES (:id, :noteId, :relatedNoteId, :score, :reason, true, now()) ON CONFLICT (note_id, related_note_id) DO UPDATE SET score = EXCLUDED.score, reason = EXCLUDED.reason, updated_at = EXCLUDED.updated_at WHERE related_notes.derived = true")
+        int upsertDerived(@Param("id") String id, @Param("noteId") String noteId,
+                          @Param("relatedNoteId") String relatedNoteId, @Param("score") double score,
+                          @Param("reason") String reason);
+
+        // 列表超出上限时只裁剪排名靠后的反向边
+        @Modifying
+        @Query(nativeQuery = true, value = "DELETE FROM related_notes WHERE derived = true AND id IN (SELECT id FROM related_notes WHERE note_id = :noteId AND related_note_id <> note_id ORDER BY score DESC OFFSET :limit)")
+        int trimDerived(@Param("noteId") String noteId, @Param("limit") int limit);
+}
@@ -0,0 +1,102 @@
+package com.ainote.service;
+
+import com.ainote.dto.ChatResponseDTO;
+import com.ainote.event.NoteChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 无状态问答（会话无历史）的答案缓存。
+ * <p>
+ * key 为归一化查询 + 领域/类型过滤条件 + 上下文指纹（本轮检索入选笔记的 ID 与版本号），因此在检索之后、
+ * 调用模型之前查找：笔记被修改、删除或新笔记进入检索结果都会改变指纹，不会命中过期答案。
+ * 另通过 noteId → key 反向索引，在 {@link NoteChangedEvent} 到达时主动剔除已不可能命中的条目。
+ * 关闭（ainote.chat.answer-cache.enabled=false）时不读不写。
+ */
+@Slf4j
+@Service
+public class AnswerCache {
+
+    public record CachedAnswer(String reply, List<ChatResponseDTO.Citation> citations, Map<String, Long> noteVersions) {
+    }
+
+    private final boolean enabled;
+    private final Cache<String, CachedAnswer> answers;
+    private final ConcurrentHashMap<String, Set<String>> keysByNoteId = new ConcurrentHashMap<>();
+
+    public AnswerCache(@Value("${ainote.chat.answer-cache.enabled:true}") boolean enabled,
+            @Value("${ainote.chat.answer-cache.ttl-minutes:10}") long ttlMinutes,
+            @Value("${ainote.chat.answer-cache.max-entries:5000}") long maxEntries) {
+        this.enabled = enabled;
+        this.answers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .maximumSize(maxEntries)
+                .removalListener((String key, CachedAnswer answer, RemovalCause cause) -> {
+                    if (key != null && answer != null && cause != RemovalCause.REPLACED) {
+                        answer.noteVersions().keySet().forEach(noteId -> unlink(noteId, key));
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @param noteVersions 本轮检索入选笔记的 ID 与版本号
+     */
+    public static String key(String query, String filterDomain, String filterType, Map<String, Long> noteVersions) {
+        String normalizedQuery = query == null ? ""
+                : String.join(" ", query.trim().toLowerCase(Locale.ROOT).split("\\s+"));
+        StringBuilder key = new StringBuilder(normalizedQuery)
+                .append('\u0000').append(filterDomain != null ? filterDomain : "")
+                .append('\u0000').append(filterType != null ? filterType : "")
+                .append('\u0000');
+        new TreeMap<>(noteVersions).forEach((noteId, version) -> key.append(noteId).append('@').append(version)
+                .append(','));
+        return key.toString();
+    }
+
+    public CachedAnswer get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        return answers.getIfPresent(key);
+    }
+
+    public void put(String key, CachedAnswer answer) {
+        if (!enabled) {
+            return;
+        }
+        answer.noteVersions().keySet()
+                .forEach(noteId -> keysByNoteId.computeIfAbsent(noteId, k -> ConcurrentHashMap.newKeySet()).add(key));
+        answers.put(key, answer);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        Set<String> keys = keysByNoteId.remove(event.getNoteId());
+        if (keys != null && !keys.isEmpty()) {
+            answers.invalidateAll(keys);
+            log.debug("Invalidated {} cached answers citing note [{}] ({}).", keys.size(), event.getNoteId(),
+                    event.getChangeType());
+        }
+    }
+
+    private void unlink(String noteId, String key) {
+        keysByNoteId.computeIfPresent(noteId, (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
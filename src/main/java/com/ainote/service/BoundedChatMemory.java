@@ -0,0 +1,294 @@
+package com.ainote.service;
+
+import com.ainote.entity.ChatSession;
+import com.ainote.entity.ChatSessionMessage;
+import com.ainote.repository.ChatSessionMessageRepository;
+import com.ainote.repository.ChatSessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 有界、可持久化的对话记忆，替代无限增长的 InMemoryChatMemory。
+ * <p>
+ * 热层为 Caffeine 缓存：按空闲时间过期，并以消息字符数为权重限制全局内存占用；
+ * 冷层为 chat_sessions / chat_messages 表，每轮对话写穿，重启或被逐出后按需回填。
+ * 单个会话超过消息上限时，最旧的若干轮在后台由大模型折叠进滚动摘要，随后从内存与数据库中删除。
+ * 空闲超过保留期的会话（包括未指定 sessionId 的一次性问答）由定时任务整体清除。
+ */
+@Slf4j
+@Service
+public class BoundedChatMemory implements ChatMemory {
+
+    private record StoredMessage(long seq, MessageType type, String content) {
+    }
+
+    private static final class SessionState {
+        private final Deque<StoredMessage> messages = new ArrayDeque<>();
+        private String summary;
+        private long nextSeq;
+        private boolean folding;
+
+        private int weight() {
+            int chars = summary != null ? summary.length() : 0;
+            for (StoredMessage m : messages) {
+                chars += m.content().length();
+            }
+            return Math.max(chars, 1);
+        }
+    }
+
+    private static final int PURGE_BATCH_SIZE = 500;
+
+    private final ChatSessionRepository sessionRepository;
+    private final ChatSessionMessageRepository messageRepository;
+    private final ChatModel chatModel;
+    private final Executor llmExecutor;
+    private final int maxMessages;
+    private final int keepRecentMessages;
+    private final long retentionDays;
+    private final Cache<String, SessionState> sessions;
+
+    public BoundedChatMemory(ChatSessionRepository sessionRepository,
+            ChatSessionMessageRepository messageRepository,
+            ChatModel chatModel,
+            @Qualifier("llmExecutor") Executor llmExecutor,
+            @Value("${ainote.chat-memory.max-messages:20}") int maxMessages,
+            @Value("${ainote.chat-memory.keep-recent-messages:10}") int keepRecentMessages,
+            @Value("${ainote.chat-memory.idle-ttl-minutes:30}") long idleTtlMinutes,
+            @Value("${ainote.chat-memory.max-total-chars:20000000}") long maxTotalChars,
+            @Value("${ainote.chat-memory.retention-days:30}") long retentionDays) {
+        this.sessionRepository = sessionRepository;
+        this.messageRepository = messageRepository;
+        this.chatModel = chatModel;
+        this.llmExecutor = llmExecutor;
+        this.maxMessages = maxMessages;
+        this.keepRecentMessages = Math.min(keepRecentMessages, maxMessages);
+        this.retentionDays = retentionDays;
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(idleTtlMinutes))
+                .maximumWeight(maxTotalChars)
+                .weigher((String id, SessionState state) -> {
+                    synchronized (state) {
+                        return state.weight();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        SessionState state = load(conversationId);
+        List<ChatSessionMessage> rows = new ArrayList<>();
+        boolean startFold;
+        synchronized (state) {
+            for (Message message : messages) {
+                MessageType type = message.getMessageType();
+                if (type != MessageType.USER && type != MessageType.ASSISTANT) {
+                    continue;
+                }
+                String content = message.getContent() != null ? message.getContent() : "";
+                StoredMessage stored = new StoredMessage(state.nextSeq++, type, content);
+                state.messages.addLast(stored);
+
+                ChatSessionMessage row = new ChatSessionMessage();
+                row.setSessionId(conversationId);
+                row.setSeq(stored.seq());
+                row.setRole(type);
+                row.setContent(content);
+                rows.add(row);
+            }
+            startFold = state.messages.size() > maxMessages && !state.folding;
+            if (startFold) {
+                state.folding = true;
+            }
+        }
+
+        ChatSession session = sessionRepository.findById(conversationId).orElseGet(() -> {
+            ChatSession created = new ChatSession();
+            created.setId(conversationId);
+            return created;
+        });
+        // 显式刷新活跃时间：会话行本身没有变化时 @PreUpdate 不会触发
+        session.setUpdatedAt(LocalDateTime.now());
+        sessionRepository.save(session);
+        messageRepository.saveAll(rows);
+
+        // 重新放入以按最新大小计算权重
+        sessions.put(conversationId, state);
+
+        if (startFold) {
+            CompletableFuture.runAsync(() -> foldOldestTurns(conversationId, state), llmExecutor);
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId, int lastN) {
+        SessionState state = load(conversationId);
+        List<Message> result = new ArrayList<>();
+        synchronized (state) {
+            if (state.summary != null && !state.summary.isBlank()) {
+                result.add(new SystemMessage("以下是本次会话更早对话的摘要，可作为回答的背景：\n" + state.summary));
+            }
+            int skip = Math.max(0, state.messages.size() - lastN);
+            for (StoredMessage m : state.messages) {
+                if (skip-- > 0) {
+                    continue;
+                }
+                result.add(m.type() == MessageType.USER
+                        ? new UserMessage(m.content())
+                        : new AssistantMessage(m.content()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        sessions.invalidate(conversationId);
+        messageRepository.deleteBySessionId(conversationId);
+        sessionRepository.deleteById(conversationId);
+    }
+
+    /**
+     * 清除空闲超过保留期的会话及其消息，按批处理以免单次删除过大。
+     */
+    @Scheduled(initialDelayString = "${ainote.chat-memory.purge-interval-ms:3600000}",
+            fixedDelayString = "${ainote.chat-memory.purge-interval-ms:3600000}")
+    public void purgeIdleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int purged = 0;
+        List<String> ids;
+        do {
+            // 先按 cutoff 删除会话，再只清理确实被删除的会话的消息与热缓存
+            ids = sessionRepository.deleteIdleSessions(cutoff, PURGE_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            messageRepository.deleteOrphanedBySessionIdIn(ids);
+            sessions.invalidateAll(ids);
+            purged += ids.size();
+        } while (ids.size() == PURGE_BATCH_SIZE);
+        if (purged > 0) {
+            log.info("Purged {} chat sessions idle for more than {} days.", purged, retentionDays);
+        }
+    }
+
+    private SessionState load(String conversationId) {
+        return sessions.get(conversationId, this::loadFromDatabase);
+    }
+
+    private SessionState loadFromDatabase(String conversationId) {
+        SessionState state = new SessionState();
+        sessionRepository.findById(conversationId).ifPresent(session -> state.summary = session.getSummary());
+
+        List<ChatSessionMessage> recent = messageRepository.findBySessionIdOrderBySeqDesc(conversationId,
+                PageRequest.of(0, maxMessages));
+        for (ChatSessionMessage row : recent) {
+            state.messages.addFirst(new StoredMessage(row.getSeq(), row.getRole(), row.getContent()));
+        }
+        state.nextSeq = recent.isEmpty() ? 0 : recent.get(0).getSeq() + 1;
+        return state;
+    }
+
+    /**
+     * 将超出保留窗口的最旧消息折叠进滚动摘要。失败时直接丢弃多出的消息，保证会话始终有界。
+     */
+    private void foldOldestTurns(String conversationId, SessionState state) {
+        List<StoredMessage> toFold = new ArrayList<>();
+        String previousSummary;
+        synchronized (state) {
+            int excess = state.messages.size() - keepRecentMessages;
+            for (StoredMessage m : state.messages) {
+                if (toFold.size() >= excess) {
+                    break;
+                }
+                toFold.add(m);
+            }
+            previousSummary = state.summary;
+        }
+        if (toFold.isEmpty()) {
+            synchronized (state) {
+                state.folding = false;
+            }
+            return;
+        }
+        long lastFoldedSeq = toFold.get(toFold.size() - 1).seq();
+
+        String newSummary = previousSummary;
+        try {
+            newSummary = summarize(previousSummary, toFold);
+        } catch (Exception e) {
+            log.warn("Failed to fold chat history for session [{}], dropping {} oldest messages: {}",
+                    conversationId, toFold.size(), e.getMessage());
+        }
+
+        synchronized (state) {
+            while (!state.messages.isEmpty() && state.messages.peekFirst().seq() <= lastFoldedSeq) {
+                state.messages.pollFirst();
+            }
+            state.summary = newSummary;
+            state.folding = false;
+        }
+
+        try {
+            ChatSession session = sessionRepository.findById(conversationId).orElseGet(() -> {
+                ChatSession created = new ChatSession();
+                created.setId(conversationId);
+                return created;
+            });
+            session.setSummary(newSummary);
+            sessionRepository.save(session);
+            messageRepository.deleteUpToSeq(conversationId, lastFoldedSeq);
+        } catch (Exception e) {
+            log.error("Failed to persist folded chat history for session [{}]: {}", conversationId, e.getMessage(), e);
+        }
+        sessions.put(conversationId, state);
+        log.debug("Folded {} messages of session [{}] into rolling summary.", toFold.size(), conversationId);
+    }
+
+    private String summarize(String previousSummary, List<StoredMessage> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (StoredMessage m : messages) {
+            transcript.append(m.type() == MessageType.USER ? "用户：" : "助手：").append(m.content()).append("\n");
+        }
+
+        String systemInstruction = """
+                你是一个对话摘要助手。请将【已有摘要】与【新增对话】合并为一段新的中文摘要。
+
+                【核心规则】：
+                1. 保留用户关心的问题、已给出的关键结论以及引用过的笔记标题。
+                2. 删除寒暄与重复内容，不要捏造对话中未出现的信息。
+                3. 摘要不超过 300 字，直接输出摘要正文。
+                """;
+        String userContent = "【已有摘要】：\n" + (previousSummary != null ? previousSummary : "（无）")
+                + "\n\n【新增对话】：\n" + transcript;
+
+        return chatModel.call(new Prompt(List.of(
+                new SystemMessage(systemInstruction),
+                new UserMessage(userContent))))
+                .getResult().getOutput().getContent();
+    }
+}
@@ -0,0 +1,142 @@
+package com.ainote.service;
+
+import com.ainote.util.QueryHighlighter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按 token 预算组装问答上下文：
+ * <ul>
+ * <li>按 Rerank 顺序贪心装入命题，近似重复（词项 Jaccard 超过阈值）的命题只保留一条；</li>
+ * <li>同一笔记的多个命题合并到同一个引用下，标题只计一次；</li>
+ * <li>历史消息从最新一条向前装入，直到用尽历史预算。</li>
+ * </ul>
+ * token 计数使用 JTokkit，编码器只初始化一次，且对重复出现的文本缓存计数结果。
+ */
+@Service
+public class ContextPacker {
+
+    private static final double DUPLICATE_JACCARD = 0.8;
+
+    public record Snippet(String noteId, String title, String content) {
+    }
+
+    public record PackedNote(String noteId, String title, List<String> snippets) {
+    }
+
+    public record PackedContext(List<PackedNote> notes, int tokens) {
+    }
+
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+    private final Cache<String, Integer> tokenCounts = Caffeine.newBuilder()
+            .maximumSize(50_000)
+            .build();
+
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return tokenCounts.get(text, estimator::estimate);
+    }
+
+    /**
+     * 在 tokenBudget 内装入候选片段（调用方按相关度降序传入）。
+     */
+    public PackedContext packSnippets(List<Snippet> candidates, int tokenBudget) {
+        Map<String, PackedNote> packed = new LinkedHashMap<>();
+        List<Set<String>> acceptedTerms = new ArrayList<>();
+        int used = 0;
+
+        for (Snippet candidate : candidates) {
+            String content = candidate.content() != null ? candidate.content().trim() : "";
+            if (content.isEmpty()) {
+                continue;
+            }
+            Set<String> terms = QueryHighlighter.tokenize(content);
+            if (isNearDuplicate(terms, acceptedTerms)) {
+                continue;
+            }
+
+            int cost = countTokens(content);
+            if (!packed.containsKey(candidate.noteId())) {
+                cost += countTokens(candidate.title());
+            }
+            if (used + cost > tokenBudget) {
+                continue;
+            }
+
+            packed.computeIfAbsent(candidate.noteId(),
+                    id -> new PackedNote(id, candidate.title(), new ArrayList<>())).snippets().add(content);
+            acceptedTerms.add(terms);
+            used += cost;
+        }
+        return new PackedContext(new ArrayList<>(packed.values()), used);
+    }
+
+    /**
+     * 从最新消息向前保留历史，直到超出 tokenBudget；摘要类系统消息在预算仍有剩余时置于最前。
+     */
+    public List<Message> trimHistory(List<Message> history, int tokenBudget) {
+        Deque<Message> kept = new ArrayDeque<>();
+        List<Message> summaries = new ArrayList<>();
+        int used = 0;
+
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Message message = history.get(i);
+            if (message.getMessageType() == MessageType.SYSTEM) {
+                summaries.add(0, message);
+                continue;
+            }
+            int cost = countTokens(message.getContent());
+            if (used + cost > tokenBudget) {
+                break;
+            }
+            kept.addFirst(message);
+            used += cost;
+        }
+
+        List<Message> result = new ArrayList<>();
+        for (Message summary : summaries) {
+            int cost = countTokens(summary.getContent());
+            if (used + cost <= tokenBudget) {
+                result.add(summary);
+                used += cost;
+            }
+        }
+        result.addAll(kept);
+        return result;
+    }
+
+    private static boolean isNearDuplicate(Set<String> terms, List<Set<String>> accepted) {
+        if (terms.isEmpty()) {
+            return false;
+        }
+        for (Set<String> other : accepted) {
+            int intersection = 0;
+            for (String term : terms) {
+                if (other.contains(term)) {
+                    intersection++;
+                }
+            }
+            int union = terms.size() + other.size() - intersection;
+            // 完全包含（短命题是长命题的子集）同样视为重复
+            if ((double) intersection / union >= DUPLICATE_JACCARD || intersection == terms.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ainote.service;
+
+import com.ainote.util.IntIntCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+
+/**
+ * 实体共现图：两个实体出现在同一篇笔记中即共现一次，边权为归一化点互信息（NPMI）。
+ * <p>
+ * 实体映射为稠密 int 编号，每个实体一行 {@link IntIntCounter} 记录与其他实体的共现次数。
+ * 全量构建时并行展开每篇笔记的实体对（打包为 long），并行排序后按游程计数，相当于一次稀疏的 AᵀA；
+ * 之后通过 {@link KnowledgeGraphModel.ChangeListener} 随笔记变更增量加减计数。
+ */
+@Slf4j
+@Service
+public class EntityCooccurrenceGraph implements KnowledgeGraphModel.ChangeListener {
+
+    public record Neighbor(String entity, int count, double npmi) {
+    }
+
+
+    private final int minCount;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> entityIds = new HashMap<>();
+    private final List<String> entityNames = new ArrayList<>();
+    private final List<IntIntCounter> rows = new ArrayList<>();
+    private int[] frequencies = new int[0];
+    // 至少包含一个实体的笔记数（PMI 的样本总数）
+    private int noteCount;
+
+    public EntityCooccurrenceGraph(@Value("${ainote.graph.cooccurrence.min-count:2}") int minCount) {
+        this.minCount = minCount;
+    }
+
+    @Override
+    public void onRebuilt(List<KnowledgeGraphModel.GraphNote> notes) {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            entityIds.clear();
+            entityNames.clear();
+            rows.clear();
+            frequencies = new int[0];
+            noteCount = 0;
+
+            List<int[]> noteEntityIds = new ArrayList<>(notes.size());
+            for (KnowledgeGraphModel.GraphNote note : notes) {
+                int[] ids = toIds(note.entities(), true);
+                if (ids.length > 0) {
+                    noteEntityIds.add(ids);
+                    noteCount++;
+                    for (int id : ids) {
+                        frequencies[id]++;
+                    }
+                }
+            }
+
+            long[] pairs = noteEntityIds.parallelStream()
+                    .flatMapToLong(EntityCooccurrenceGraph::pairsOf)
+                    .toArray();
+            Arrays.parallelSort(pairs);
+
+            int[] rowSizes = new int[entityNames.size()];
+            for (int i = 0; i < pairs.length; i++) {
+                if (i == 0 || pairs[i] != pairs[i - 1]) {
+                    rowSizes[(int) (pairs[i] >>> 32)]++;
+                    rowSizes[(int) pairs[i]]++;
+                }
+            }
+            // 按实际邻居数预分配每行容量，避免逐条插入时反复扩容
+            for (int id = 0; id < entityNames.size(); id++) {
+                rows.set(id, new IntIntCounter(rowSizes[id]));
+            }
+            for (int i = 0; i < pairs.length;) {
+                int j = i;
+                while (j < pairs.length && pairs[j] == pairs[i]) {
+                    j++;
+                }
+                int a = (int) (pairs[i] >>> 32);
+                int b = (int) pairs[i];
+                rows.get(a).add(b, j - i);
+                rows.get(b).add(a, j - i);
+                i = j;
+            }
+            log.info("Entity co-occurrence graph built: {} entities, {} pairs from {} notes in {} ms",
+                    entityNames.size(), pairs.length, noteCount, System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onNoteChanged(KnowledgeGraphModel.GraphNote before, KnowledgeGraphModel.GraphNote after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                apply(toIds(before.entities(), false), -1);
+            }
+            if (after != null) {
+                apply(toIds(after.entities(), true), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 与实体共现最强的 k 个实体，按 NPMI 降序（共现次数不足 minCount 的实体对不参与排序）。
+     */
+    public List<Neighbor> topNeighbors(String entity, int k) {
+        lock.readLock().lock();
+        try {
+            Integer id = entityIds.get(entity);
+            if (id == null || frequencies[id] == 0) {
+                return Collections.emptyList();
+            }
+            int self = id;
+            List<Neighbor> neighbors = new ArrayList<>();
+            rows.get(self).forEach((other, count) -> {
+                if (count >= minCount) {
+                    neighbors.add(new Neighbor(entityNames.get(other), count,
+                            npmi(count, frequencies[self], frequencies[other], noteCount)));
+                }
+            });
+            neighbors.sort(Comparator.comparingDouble(Neighbor::npmi).reversed()
+                    .thenComparing(Comparator.comparingInt(Neighbor::count).reversed())
+                    .thenComparing(Neighbor::entity));
+            return neighbors.size() > k ? new ArrayList<>(neighbors.subList(0, k)) : neighbors;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(int[] ids, int delta) {
+        if (ids.length == 0) {
+            return;
+        }
+        noteCount += delta;
+        for (int id : ids) {
+            frequencies[id] += delta;
+        }
+        pairsOf(ids).forEach(pair -> {
+            int a = (int) (pair >>> 32);
+            int b = (int) pair;
+            rows.get(a).add(b, delta);
+            rows.get(b).add(a, delta);
+        });
+    }
+
+    /**
+     * 实体名 → 编号（去重、截断到 NoteIndexSource.MAX_ENTITIES_PER_NOTE）；register 为 false 时忽略未登记的实体。
+     */
+    private int[] toIds(List<String> entities, boolean register) {
+        int limit = Math.min(entities.size(), NoteIndexSource.MAX_ENTITIES_PER_NOTE);
+        int[] ids = new int[limit];
+        int size = 0;
+        for (int i = 0; i < limit; i++) {
+            Integer id = entityIds.get(entities.get(i));
+            if (id == null) {
+                if (!register) {
+                    continue;
+                }
+                id = entityNames.size();
+                entityIds.put(entities.get(i), id);
+                entityNames.add(entities.get(i));
+                rows.add(new IntIntCounter());
+                if (id >= frequencies.length) {
+                    frequencies = Arrays.copyOf(frequencies, Math.max(16, frequencies.length * 2));
+                }
+            }
+            ids[size++] = id;
+        }
+        return Arrays.stream(ids, 0, size).distinct().toArray();
+    }
+
+    // 实体对打包为 long（小编号在高 32 位），便于排序计数
+    private static LongStream pairsOf(int[] ids) {
+        LongStream.Builder builder = LongStream.builder();
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = i + 1; j < ids.length; j++) {
+                int a = Math.min(ids[i], ids[j]);
+                int b = Math.max(ids[i], ids[j]);
+                builder.add(((long) a << 32) | b);
+            }
+        }
+        return builder.build();
+    }
+
+    private static double npmi(int pairCount, int countA, int countB, int total) {
+        if (total <= 0 || countA <= 0 || countB <= 0) {
+            return 0.0;
+        }
+        double pAB = (double) pairCount / total;
+        if (pAB >= 1.0) {
+            return 1.0;
+        }
+        double pmi = Math.log(pAB / ((double) countA / total * countB / total));
+        return pmi / -Math.log(pAB);
+    }
+}
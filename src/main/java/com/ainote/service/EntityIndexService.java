@@ -0,0 +1,278 @@
+package com.ainote.service;
+
+import com.ainote.event.NoteChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 实体倒排索引：实体 / 领域 / 内容类别 → 笔记集合。
+ * <p>
+ * 笔记映射为稠密 int 编号，倒排表使用 RoaringBitmap 压缩存储。启动时全量重建，
+ * 之后随 {@link NoteChangedEvent} 增量更新；所有查询均为纯内存操作，不访问数据库。
+ */
+@Slf4j
+@Service
+public class EntityIndexService implements NoteIndexSource.Subscriber {
+
+    public record IndexedNote(String id, String title, String contentType) {
+    }
+
+    public record EntityOverlap(String noteId, String title, List<String> sharedEntities, double jaccard) {
+    }
+
+    private record NoteEntry(String id, String title, String domain, String contentType, List<String> entities) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 稠密编号 ↔ 笔记
+    private final Map<String, Integer> docIdByNoteId = new HashMap<>();
+    private final List<NoteEntry> entries = new ArrayList<>();
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+
+    // 倒排表
+    private final Map<String, RoaringBitmap> entityPostings = new HashMap<>();
+    private final Map<String, RoaringBitmap> domainPostings = new HashMap<>();
+    private final Map<String, RoaringBitmap> typePostings = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild(List<NoteIndexSource.NoteFacets> rows) {
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            docIdByNoteId.clear();
+            entries.clear();
+            freeDocIds.clear();
+            entityPostings.clear();
+            domainPostings.clear();
+            typePostings.clear();
+
+            for (NoteIndexSource.NoteFacets row : rows) {
+                addLocked(toEntry(row));
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Entity index rebuilt: {} notes, {} entities in {} ms", rows.size(), entityPostings.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void onNoteChanged(String noteId, NoteIndexSource.NoteFacets note) {
+        if (note == null) {
+            remove(noteId);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(noteId);
+            addLocked(toEntry(note));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String noteId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(noteId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按实体精确查找笔记（对应 findNotesByEntity）。
+     */
+    public List<IndexedNote> findNotesByEntity(String entity) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap posting = entityPostings.get(entity);
+            if (posting == null) {
+                return Collections.emptyList();
+            }
+            List<IndexedNote> result = new ArrayList<>(posting.getCardinality());
+            posting.forEach((int docId) -> {
+                NoteEntry e = entries.get(docId);
+                result.add(new IndexedNote(e.id(), e.title(), e.contentType()));
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 某领域下所有笔记出现过的实体（去重，对应 findEntitiesByDomain）。
+     */
+    public List<String> findEntitiesByDomain(String domain) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap posting = domainPostings.get(domain);
+            if (posting == null) {
+                return Collections.emptyList();
+            }
+            Set<String> entities = new LinkedHashSet<>();
+            posting.forEach((int docId) -> entities.addAll(entries.get(docId).entities()));
+            return new ArrayList<>(entities);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> findEntitiesByNoteId(String noteId) {
+        lock.readLock().lock();
+        try {
+            Integer docId = docIdByNoteId.get(noteId);
+            return docId == null ? Collections.emptyList() : new ArrayList<>(entries.get(docId).entities());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 实体、领域或内容类别与概念精确相等的笔记 ID（对应 findNoteIdsByEntityLike）。
+     */
+    public Set<String> findNoteIdsByConcept(String concept) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matched = new RoaringBitmap();
+            Optional.ofNullable(entityPostings.get(concept)).ifPresent(matched::or);
+            Optional.ofNullable(domainPostings.get(concept)).ifPresent(matched::or);
+            Optional.ofNullable(typePostings.get(concept)).ifPresent(matched::or);
+
+            Set<String> noteIds = new LinkedHashSet<>();
+            matched.forEach((int docId) -> noteIds.add(entries.get(docId).id()));
+            return noteIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 与指定笔记共享至少一个实体的其他笔记，附带共享实体与 Jaccard 相似度，按相似度降序。
+     */
+    public List<EntityOverlap> findNotesSharingEntities(String noteId) {
+        lock.readLock().lock();
+        try {
+            Integer selfDocId = docIdByNoteId.get(noteId);
+            if (selfDocId == null) {
+                return Collections.emptyList();
+            }
+            List<String> selfEntities = entries.get(selfDocId).entities();
+            if (selfEntities.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // 累加每个候选笔记命中的实体数（交集大小）
+            Map<Integer, Integer> intersectionSizes = new HashMap<>();
+            for (String entity : selfEntities) {
+                RoaringBitmap posting = entityPostings.get(entity);
+                if (posting != null) {
+                    posting.forEach((int docId) -> {
+                        if (docId != selfDocId) {
+                            intersectionSizes.merge(docId, 1, Integer::sum);
+                        }
+                    });
+                }
+            }
+
+            List<EntityOverlap> overlaps = new ArrayList<>(intersectionSizes.size());
+            for (Map.Entry<Integer, Integer> candidate : intersectionSizes.entrySet()) {
+                int docId = candidate.getKey();
+                NoteEntry other = entries.get(docId);
+                int intersection = candidate.getValue();
+                int union = selfEntities.size() + other.entities().size() - intersection;
+
+                List<String> shared = new ArrayList<>(intersection);
+                for (String entity : selfEntities) {
+                    if (entityPostings.get(entity).contains(docId)) {
+                        shared.add(entity);
+                    }
+                }
+                overlaps.add(new EntityOverlap(other.id(), other.title(), shared, (double) intersection / union));
+            }
+            overlaps.sort((a, b) -> Double.compare(b.jaccard(), a.jaccard()));
+            return overlaps;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(NoteEntry entry) {
+        int docId;
+        if (freeDocIds.isEmpty()) {
+            docId = entries.size();
+            entries.add(entry);
+        } else {
+            docId = freeDocIds.pop();
+            entries.set(docId, entry);
+        }
+        docIdByNoteId.put(entry.id(), docId);
+
+        for (String entity : entry.entities()) {
+            entityPostings.computeIfAbsent(entity, k -> new RoaringBitmap()).add(docId);
+        }
+        if (NoteIndexSource.isPresent(entry.domain())) {
+            domainPostings.computeIfAbsent(entry.domain(), k -> new RoaringBitmap()).add(docId);
+        }
+        if (NoteIndexSource.isPresent(entry.contentType())) {
+            typePostings.computeIfAbsent(entry.contentType(), k -> new RoaringBitmap()).add(docId);
+        }
+    }
+
+    private void removeLocked(String noteId) {
+        Integer docId = docIdByNoteId.remove(noteId);
+        if (docId == null) {
+            return;
+        }
+        NoteEntry entry = entries.get(docId);
+        for (String entity : entry.entities()) {
+            removePosting(entityPostings, entity, docId);
+        }
+        if (NoteIndexSource.isPresent(entry.domain())) {
+            removePosting(domainPostings, entry.domain(), docId);
+        }
+        if (NoteIndexSource.isPresent(entry.contentType())) {
+            removePosting(typePostings, entry.contentType(), docId);
+        }
+        entries.set(docId, null);
+        freeDocIds.push(docId);
+    }
+
+    private static void removePosting(Map<String, RoaringBitmap> postings, String key, int docId) {
+        RoaringBitmap posting = postings.get(key);
+        if (posting != null) {
+            posting.remove(docId);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static NoteEntry toEntry(NoteIndexSource.NoteFacets note) {
+        return new NoteEntry(note.id(), note.title(), note.domain(), note.contentType(), note.entities());
+    }
+}
@@ -0,0 +1,85 @@
+package com.ainote.service;
+
+import com.ainote.repository.NoteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * 后台预生成热门实体（countTopEntities）的百科，使首个访问请求无需等待检索与长文本合成。
+ * <p>
+ * 仅在 LLM 线程池空闲（无活跃任务且队列为空）时逐个生成，每生成一篇前重新检查，
+ * 一旦有用户请求占用线程池即让出，留待下一轮调度。
+ */
+@Slf4j
+@Component
+public class EntityWikiPregenerator {
+
+    private final NoteService noteService;
+    private final NoteRepository noteRepository;
+    private final EntityWikiStore entityWikiStore;
+    private final Executor llmExecutor;
+    private final boolean enabled;
+    private final int maxEntities;
+
+    public EntityWikiPregenerator(NoteService noteService,
+            NoteRepository noteRepository,
+            EntityWikiStore entityWikiStore,
+            @Qualifier("llmExecutor") Executor llmExecutor,
+            @Value("${ainote.wiki.pregenerate.enabled:true}") boolean enabled,
+            @Value("${ainote.wiki.pregenerate.max-entities:10}") int maxEntities) {
+        this.noteService = noteService;
+        this.noteRepository = noteRepository;
+        this.entityWikiStore = entityWikiStore;
+        this.llmExecutor = llmExecutor;
+        this.enabled = enabled;
+        this.maxEntities = maxEntities;
+    }
+
+    @Scheduled(initialDelayString = "${ainote.wiki.pregenerate.initial-delay-ms:120000}",
+            fixedDelayString = "${ainote.wiki.pregenerate.interval-ms:600000}")
+    public void pregenerateTopEntityWikis() {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> topEntities = noteRepository.countTopEntities().stream()
+                .map(row -> (String) row[0])
+                .filter(name -> name != null && !name.isBlank())
+                .limit(maxEntities)
+                .toList();
+
+        int generated = 0;
+        for (String entityName : topEntities) {
+            if (entityWikiStore.isFresh(entityName)) {
+                continue;
+            }
+            if (!isLlmExecutorIdle()) {
+                log.debug("LLM executor busy, postponing wiki pre-generation ({} generated this round).", generated);
+                return;
+            }
+            try {
+                noteService.generateEntityWiki(entityName, false);
+                generated++;
+            } catch (Exception e) {
+                log.warn("Failed to pre-generate wiki for entity [{}]: {}", entityName, e.getMessage());
+            }
+        }
+        if (generated > 0) {
+            log.info("Pre-generated {} entity wikis.", generated);
+        }
+    }
+
+    private boolean isLlmExecutorIdle() {
+        if (llmExecutor instanceof ThreadPoolTaskExecutor pool) {
+            return pool.getActiveCount() == 0 && pool.getThreadPoolExecutor().getQueue().isEmpty();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,160 @@
+package com.ainote.service;
+
+import com.ainote.entity.EntityWiki;
+import com.ainote.entity.EntityWikiSource;
+import com.ainote.entity.Note;
+import com.ainote.event.NoteChangedEvent;
+import com.ainote.repository.EntityWikiRepository;
+import com.ainote.repository.EntityWikiSourceRepository;
+import com.ainote.repository.NoteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 实体百科的持久化存储，替代无界且不会失效的 {@code @Cacheable("entityWiki")}。
+ * <p>
+ * entity_wikis 表保存百科正文，entity_wiki_sources 表记录生成时引用的笔记 ID 与版本号；
+ * 内存中只保留按条数限制的 Caffeine 热层。来源笔记变化（或笔记新提到该实体）时，
+ * {@link NoteChangedEvent} 监听器将对应百科标记为过期并移出热层，下次访问时重新生成。
+ */
+@Slf4j
+@Service
+public class EntityWikiStore {
+
+    public record WikiSource(String noteId, long version, String title, String fragmentHash) {
+    }
+
+    /**
+     * 数据库中最近一次生成的百科（可能已过期），供增量修订比对来源碎片。
+     */
+    public record StoredWiki(String content, boolean stale, List<WikiSource> sources) {
+    }
+
+    private final EntityWikiRepository wikiRepository;
+    private final EntityWikiSourceRepository sourceRepository;
+    private final NoteRepository noteRepository;
+    private final EntityIndexService entityIndexService;
+    private final Cache<String, String> hotWikis;
+
+    public EntityWikiStore(EntityWikiRepository wikiRepository,
+            EntityWikiSourceRepository sourceRepository,
+            NoteRepository noteRepository,
+            EntityIndexService entityIndexService,
+            @Value("${ainote.wiki.cache-max-entries:200}") long maxEntries) {
+        this.wikiRepository = wikiRepository;
+        this.sourceRepository = sourceRepository;
+        this.noteRepository = noteRepository;
+        this.entityIndexService = entityIndexService;
+        this.hotWikis = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    /**
+     * 读取未过期的百科。热层未命中时回源数据库，并校验来源笔记版本，防止读到遗漏失效的旧百科。
+     */
+    public Optional<String> get(String entityName) {
+        String cached = hotWikis.getIfPresent(entityName);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<EntityWiki> wikiOpt = wikiRepository.findById(entityName);
+        if (wikiOpt.isEmpty() || wikiOpt.get().isStale()) {
+            return Optional.empty();
+        }
+        if (!sourcesUnchanged(sourceRepository.findByEntityName(entityName))) {
+            log.debug("Stored wiki for [{}] has changed sources, marking stale.", entityName);
+            wikiRepository.markStale(List.of(entityName));
+            return Optional.empty();
+        }
+
+        String content = wikiOpt.get().getContent();
+        hotWikis.put(entityName, content);
+        return Optional.of(content);
+    }
+
+    public boolean isFresh(String entityName) {
+        return get(entityName).isPresent();
+    }
+
+    public Optional<StoredWiki> findPrevious(String entityName) {
+        return wikiRepository.findById(entityName).map(wiki -> new StoredWiki(wiki.getContent(), wiki.isStale(),
+                sourceRepository.findByEntityName(entityName).stream()
+                        .map(s -> new WikiSource(s.getNoteId(), s.getNoteVersion(), s.getNoteTitle(),
+                                s.getFragmentHash()))
+                        .toList()));
+    }
+
+    /**
+     * 保存新生成的百科及其来源笔记版本与碎片摘要，覆盖该实体之前的记录。
+     */
+    @Transactional
+    public void save(String entityName, String content, List<WikiSource> wikiSources) {
+        EntityWiki wiki = wikiRepository.findById(entityName).orElseGet(() -> {
+            EntityWiki created = new EntityWiki();
+            created.setEntityName(entityName);
+            return created;
+        });
+        wiki.setContent(content);
+        wiki.setStale(false);
+        wikiRepository.save(wiki);
+
+        sourceRepository.deleteByEntityName(entityName);
+        List<EntityWikiSource> sources = new ArrayList<>(wikiSources.size());
+        for (WikiSource wikiSource : wikiSources) {
+            EntityWikiSource source = new EntityWikiSource();
+            source.setEntityName(entityName);
+            source.setNoteId(wikiSource.noteId());
+            source.setNoteVersion(wikiSource.version());
+            source.setNoteTitle(wikiSource.title());
+            source.setFragmentHash(wikiSource.fragmentHash());
+            sources.add(source);
+        }
+        sourceRepository.saveAll(sources);
+
+        hotWikis.put(entityName, content);
+    }
+
+    // 晚于实体索引监听器执行（其优先级最高），此时可读到笔记最新的实体列表
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        Set<String> affected = new LinkedHashSet<>(sourceRepository.findEntityNamesByNoteId(event.getNoteId()));
+        affected.addAll(entityIndexService.findEntitiesByNoteId(event.getNoteId()));
+        if (affected.isEmpty()) {
+            return;
+        }
+        hotWikis.invalidateAll(affected);
+        int marked = wikiRepository.markStale(affected);
+        if (marked > 0) {
+            log.debug("Marked {} entity wikis stale after note [{}] changed ({}).", marked, event.getNoteId(),
+                    event.getChangeType());
+        }
+    }
+
+    private boolean sourcesUnchanged(List<EntityWikiSource> sources) {
+        if (sources.isEmpty()) {
+            return false;
+        }
+        List<Note> notes = noteRepository.findAllById(sources.stream().map(EntityWikiSource::getNoteId).toList());
+        if (notes.size() != sources.size()) {
+            return false;
+        }
+        Map<String, Long> expected = new HashMap<>();
+        sources.forEach(s -> expected.put(s.getNoteId(), s.getNoteVersion()));
+        return notes.stream().allMatch(n -> !n.isDeleted() && expected.get(n.getId()) == n.getVersion());
+    }
+}
@@ -0,0 +1,243 @@
+package com.ainote.service;
+
+import com.ainote.dto.GraphDataDTO;
+import com.ainote.util.LouvainClustering;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 大规模知识图谱的分层展示（Level of Detail）：在实体共现图上运行 Louvain 社区发现，
+ * 顶层只返回折叠后的簇节点（"C:" 前缀，权重为簇内笔记数），点击簇再展开为实体。
+ * <p>
+ * 聚类结果按领域缓存，图谱版本变化后最多每 refresh 间隔重算一次；
+ * 簇节点 ID 带聚类代号，展开时使用生成该节点的那一次聚类结果，避免重算后编号错位。
+ */
+@Slf4j
+@Service
+public class GraphClusterService {
+
+    public record EntityCluster(int index, String label, List<String> entities, int noteCount) {
+    }
+
+    private record Clustering(long generation, long version, long builtAt, List<EntityCluster> clusters,
+            Map<Long, Double> linkWeights) {
+    }
+
+    public static final String CLUSTER_PREFIX = "C:";
+    private static final int LABEL_ENTITIES = 3;
+
+    private final KnowledgeGraphModel knowledgeGraphModel;
+    private final RequestCoalescer requestCoalescer;
+    private final long refreshMillis;
+    private final AtomicLong generations = new AtomicLong();
+    private final Map<String, Clustering> latestByDomain = new ConcurrentHashMap<>();
+    private final Cache<Long, Clustering> byGeneration = Caffeine.newBuilder()
+            .maximumSize(32)
+            .build();
+
+    public GraphClusterService(KnowledgeGraphModel knowledgeGraphModel,
+            RequestCoalescer requestCoalescer,
+            @Value("${ainote.graph.cluster-refresh-ms:60000}") long refreshMillis) {
+        this.knowledgeGraphModel = knowledgeGraphModel;
+        this.requestCoalescer = requestCoalescer;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * 顶层簇视图：按笔记数取前 maxNodes 个簇，以及这些簇之间共现最强的连线。
+     */
+    public GraphDataDTO clusteredGraph(String domain, int maxNodes) {
+        Clustering clustering = clustering(domain);
+
+        List<GraphDataDTO.NodeDTO> nodes = new ArrayList<>();
+        Map<Integer, Boolean> included = new HashMap<>();
+        for (EntityCluster cluster : clustering.clusters()) {
+            if (nodes.size() >= maxNodes) {
+                break;
+            }
+            nodes.add(new GraphDataDTO.NodeDTO(clusterNodeId(clustering, cluster), cluster.label(), "cluster",
+                    cluster.noteCount()));
+            included.put(cluster.index(), true);
+        }
+
+        List<GraphDataDTO.LinkDTO> links = clustering.linkWeights().entrySet().stream()
+                .filter(e -> included.containsKey((int) (e.getKey() >>> 32))
+                        && included.containsKey((int) (long) e.getKey()))
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(maxNodes * 2L)
+                .map(e -> new GraphDataDTO.LinkDTO(
+                        clusterNodeId(clustering, clustering.clusters().get((int) (e.getKey() >>> 32))),
+                        clusterNodeId(clustering, clustering.clusters().get((int) (long) e.getKey())),
+                        "related"))
+                .collect(Collectors.toList());
+
+        GraphDataDTO graphData = new GraphDataDTO();
+        graphData.setNodes(nodes);
+        graphData.setLinks(links);
+        graphData.setVersion(clustering.version());
+        return graphData;
+    }
+
+    /**
+     * 展开簇节点：返回簇内出现频次最高的 maxNodes 个实体（"E:" 前缀，可继续按实体展开到笔记）。
+     *
+     * @return 簇不存在或所属聚类已被淘汰时返回 null
+     */
+    public List<String> clusterEntities(String clusterId, int maxNodes) {
+        int dot = clusterId.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            Clustering clustering = byGeneration.getIfPresent(Long.parseLong(clusterId.substring(0, dot)));
+            int index = Integer.parseInt(clusterId.substring(dot + 1));
+            if (clustering == null || index < 0 || index >= clustering.clusters().size()) {
+                return null;
+            }
+            List<String> entities = clustering.clusters().get(index).entities();
+            return entities.subList(0, Math.min(maxNodes, entities.size()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Clustering clustering(String domain) {
+        String domainKey = domain != null ? domain : "";
+        Clustering cached = latestByDomain.get(domainKey);
+        if (cached != null && (cached.version() == knowledgeGraphModel.version()
+                || System.currentTimeMillis() - cached.builtAt() < refreshMillis)) {
+            return cached;
+        }
+        return requestCoalescer.execute("graph-clusters", domainKey, () -> {
+            Clustering built = build(domain);
+            latestByDomain.put(domainKey, built);
+            byGeneration.put(built.generation(), built);
+            return built;
+        });
+    }
+
+    private Clustering build(String domain) {
+        long start = System.currentTimeMillis();
+        long version = knowledgeGraphModel.version();
+        List<KnowledgeGraphModel.GraphNote> notes = knowledgeGraphModel.notesInView(domain);
+
+        // 1. 实体编号与频次
+        Map<String, Integer> entityIds = new HashMap<>();
+        List<String> entityNames = new ArrayList<>();
+        List<Integer> frequencies = new ArrayList<>();
+        for (KnowledgeGraphModel.GraphNote note : notes) {
+            for (String entity : note.entities()) {
+                int id = entityIds.computeIfAbsent(entity, name -> {
+                    entityNames.add(name);
+                    frequencies.add(0);
+                    return entityNames.size() - 1;
+                });
+                frequencies.set(id, frequencies.get(id) + 1);
+            }
+        }
+
+        // 2. 实体共现边（同一笔记内两两相连，权重为共现笔记数）
+        Map<Long, Double> cooccurrence = new HashMap<>();
+        for (KnowledgeGraphModel.GraphNote note : notes) {
+            List<String> entities = note.entities();
+            int limit = Math.min(entities.size(), NoteIndexSource.MAX_ENTITIES_PER_NOTE);
+            for (int a = 0; a < limit; a++) {
+                for (int b = a + 1; b < limit; b++) {
+                    int x = entityIds.get(entities.get(a));
+                    int y = entityIds.get(entities.get(b));
+                    cooccurrence.merge(pairKey(Math.min(x, y), Math.max(x, y)), 1.0, Double::sum);
+                }
+            }
+        }
+        int[] from = new int[cooccurrence.size()];
+        int[] to = new int[cooccurrence.size()];
+        double[] weights = new double[cooccurrence.size()];
+        int e = 0;
+        for (Map.Entry<Long, Double> edge : cooccurrence.entrySet()) {
+            from[e] = (int) (edge.getKey() >>> 32);
+            to[e] = (int) (long) edge.getKey();
+            weights[e] = edge.getValue();
+            e++;
+        }
+        int[] membership = LouvainClustering.cluster(entityNames.size(), from, to, weights, 42L);
+
+        // 3. 每篇笔记归入其实体中占多数的簇
+        int communityCount = 0;
+        for (int c : membership) {
+            communityCount = Math.max(communityCount, c + 1);
+        }
+        int[] noteCounts = new int[communityCount];
+        for (KnowledgeGraphModel.GraphNote note : notes) {
+            Map<Integer, Integer> votes = new HashMap<>();
+            for (String entity : note.entities()) {
+                votes.merge(membership[entityIds.get(entity)], 1, Integer::sum);
+            }
+            votes.entrySet().stream()
+                    .max(Map.Entry.<Integer, Integer>comparingByValue()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .ifPresent(vote -> noteCounts[vote.getKey()]++);
+        }
+
+        // 4. 组装簇（按笔记数降序重新编号）与簇间连线权重
+        List<List<Integer>> members = new ArrayList<>();
+        for (int c = 0; c < communityCount; c++) {
+            members.add(new ArrayList<>());
+        }
+        for (int id = 0; id < membership.length; id++) {
+            members.get(membership[id]).add(id);
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < communityCount; c++) {
+            order.add(c);
+        }
+        order.sort(Comparator.<Integer>comparingInt(c -> noteCounts[c]).reversed()
+                .thenComparing(c -> -members.get(c).size()));
+        int[] rank = new int[communityCount];
+        List<EntityCluster> clusters = new ArrayList<>(communityCount);
+        for (int r = 0; r < order.size(); r++) {
+            int c = order.get(r);
+            rank[c] = r;
+            List<String> entities = members.get(c).stream()
+                    .sorted(Comparator.<Integer>comparingInt(frequencies::get).reversed())
+                    .map(entityNames::get)
+                    .toList();
+            String label = String.join(" / ", entities.subList(0, Math.min(LABEL_ENTITIES, entities.size())));
+            clusters.add(new EntityCluster(r, label, entities, noteCounts[c]));
+        }
+
+        Map<Long, Double> linkWeights = new HashMap<>();
+        for (Map.Entry<Long, Double> edge : cooccurrence.entrySet()) {
+            int a = rank[membership[(int) (edge.getKey() >>> 32)]];
+            int b = rank[membership[(int) (long) edge.getKey()]];
+            if (a != b) {
+                linkWeights.merge(pairKey(Math.min(a, b), Math.max(a, b)), edge.getValue(), Double::sum);
+            }
+        }
+
+        Clustering clustering = new Clustering(generations.incrementAndGet(), version, System.currentTimeMillis(),
+                clusters, linkWeights);
+        log.info("Clustered {} entities of {} notes into {} communities in {} ms (domain: {}).", entityNames.size(),
+                notes.size(), clusters.size(), System.currentTimeMillis() - start, domain != null ? domain : "all");
+        return clustering;
+    }
+
+    private static String clusterNodeId(Clustering clustering, EntityCluster cluster) {
+        return CLUSTER_PREFIX + clustering.generation() + "." + cluster.index();
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) a << 32) | (b & 0xffffffffL);
+    }
+}
@@ -0,0 +1,340 @@
+package com.ainote.service;
+
+import com.ainote.dto.GraphDataDTO;
+import com.ainote.dto.GraphDeltaDTO;
+import com.ainote.event.NoteChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 服务端知识图谱模型（笔记 ↔ 实体二部图），启动时构建一次，之后随 {@link NoteChangedEvent} 增量维护。
+ * <p>
+ * 每次实际发生变化版本号加一，并在有界的变更日志中记录笔记变更前后的状态；
+ * 客户端携带已持有的版本号即可只拉取增量（按领域过滤的视图同样适用），
+ * 日志无法覆盖该版本时退化为完整快照。版本号以构建时的毫秒时间戳为起点，重启后仍单调递增。
+ */
+@Slf4j
+@Service
+public class KnowledgeGraphModel implements NoteIndexSource.Subscriber {
+
+    public record GraphNote(String id, String title, String domain, List<String> entities) {
+    }
+
+    /**
+     * 派生图结构（如实体共现图）的增量维护回调，在模型写锁内按变更顺序调用。
+     */
+    public interface ChangeListener {
+        void onRebuilt(List<GraphNote> notes);
+
+        void onNoteChanged(GraphNote before, GraphNote after);
+    }
+
+    private record NoteChange(long version, String noteId, GraphNote before, GraphNote after) {
+    }
+
+    private static final String NOTE_GROUP = "note";
+    private static final String ENTITY_GROUP = "domain";
+    private static final String CONTAINS = "contains";
+
+    private final int deltaLogSize;
+    private final List<ChangeListener> changeListeners;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, GraphNote> notes = new LinkedHashMap<>();
+    private final Map<String, Set<String>> noteIdsByEntity = new HashMap<>();
+    private final Deque<NoteChange> changeLog = new ArrayDeque<>();
+    // 变更日志可覆盖的最早版本（不早于该版本的客户端可以拉取增量）
+    private long logFloor;
+    private volatile long version;
+
+    private volatile boolean ready = false;
+
+    public KnowledgeGraphModel(@Value("${ainote.graph.delta-log-size:10000}") int deltaLogSize,
+            List<ChangeListener> changeListeners) {
+        this.deltaLogSize = deltaLogSize;
+        this.changeListeners = changeListeners;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild(List<NoteIndexSource.NoteFacets> rows) {
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            notes.clear();
+            noteIdsByEntity.clear();
+            changeLog.clear();
+            for (NoteIndexSource.NoteFacets row : rows) {
+                putLocked(toGraphNote(row));
+            }
+            version = Math.max(version + 1, start);
+            logFloor = version;
+            List<GraphNote> snapshot = List.copyOf(notes.values());
+            changeListeners.forEach(listener -> listener.onRebuilt(snapshot));
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Knowledge graph model built: {} notes, {} entities in {} ms (version {})", rows.size(),
+                noteIdsByEntity.size(), System.currentTimeMillis() - start, version);
+    }
+
+    @Override
+    public void onNoteChanged(String noteId, NoteIndexSource.NoteFacets note) {
+        if (!ready) {
+            return;
+        }
+        GraphNote after = note != null ? toGraphNote(note) : null;
+
+        lock.writeLock().lock();
+        try {
+            GraphNote before = notes.get(noteId);
+            if (Objects.equals(before, after)) {
+                return;
+            }
+            removeLocked(noteId);
+            if (after != null) {
+                putLocked(after);
+            }
+            version++;
+            changeLog.addLast(new NoteChange(version, noteId, before, after));
+            while (changeLog.size() > deltaLogSize) {
+                logFloor = changeLog.pollFirst().version();
+            }
+            changeListeners.forEach(listener -> listener.onNoteChanged(before, after));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 完整快照：包含实体的笔记节点、实体节点与"实体 → 笔记"连线；domain 非空时只取该领域的笔记。
+     */
+    public GraphDataDTO snapshot(String domain) {
+        lock.readLock().lock();
+        try {
+            List<GraphDataDTO.NodeDTO> nodes = new ArrayList<>();
+            List<GraphDataDTO.LinkDTO> links = new ArrayList<>();
+            Set<String> addedEntities = new HashSet<>();
+            for (GraphNote note : notes.values()) {
+                if (!inView(note, domain)) {
+                    continue;
+                }
+                nodes.add(noteNode(note));
+                for (String entity : note.entities()) {
+                    if (addedEntities.add(entity)) {
+                        nodes.add(entityNode(entity));
+                    }
+                    links.add(new GraphDataDTO.LinkDTO(entity, note.id(), CONTAINS));
+                }
+            }
+            GraphDataDTO graphData = new GraphDataDTO();
+            graphData.setNodes(nodes);
+            graphData.setLinks(links);
+            graphData.setVersion(version);
+            return graphData;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 计算视图从 sinceVersion 到当前版本的增量；变更日志无法覆盖时返回完整快照（full = true）。
+     */
+    public GraphDeltaDTO deltaSince(long sinceVersion, String domain) {
+        lock.readLock().lock();
+        try {
+            if (sinceVersion < logFloor || sinceVersion > version) {
+                GraphDataDTO full = snapshot(domain);
+                return new GraphDeltaDTO(sinceVersion, full.getVersion(), true, full.getNodes(),
+                        Collections.emptyList(), full.getLinks(), Collections.emptyList());
+            }
+
+            // 每篇被改动笔记在 sinceVersion 时的状态（取最早一条变更的 before）
+            Map<String, GraphNote> beforeById = new HashMap<>();
+            Iterator<NoteChange> newestFirst = changeLog.descendingIterator();
+            while (newestFirst.hasNext()) {
+                NoteChange change = newestFirst.next();
+                if (change.version() <= sinceVersion) {
+                    break;
+                }
+                beforeById.put(change.noteId(), change.before());
+            }
+
+            List<GraphDataDTO.NodeDTO> upserted = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            List<GraphDataDTO.LinkDTO> addedLinks = new ArrayList<>();
+            List<GraphDataDTO.LinkDTO> removedLinks = new ArrayList<>();
+            Map<String, Integer> entityRefDelta = new HashMap<>();
+
+            for (Map.Entry<String, GraphNote> entry : beforeById.entrySet()) {
+                GraphNote before = inView(entry.getValue(), domain) ? entry.getValue() : null;
+                GraphNote after = inView(notes.get(entry.getKey()), domain) ? notes.get(entry.getKey()) : null;
+
+                if (after != null && !sameNode(before, after)) {
+                    upserted.add(noteNode(after));
+                } else if (after == null && before != null) {
+                    removed.add(before.id());
+                }
+
+                Set<String> beforeEntities = before != null ? new LinkedHashSet<>(before.entities()) : Set.of();
+                Set<String> afterEntities = after != null ? new LinkedHashSet<>(after.entities()) : Set.of();
+                for (String entity : afterEntities) {
+                    if (!beforeEntities.contains(entity)) {
+                        addedLinks.add(new GraphDataDTO.LinkDTO(entity, entry.getKey(), CONTAINS));
+                        entityRefDelta.merge(entity, 1, Integer::sum);
+                    }
+                }
+                for (String entity : beforeEntities) {
+                    if (!afterEntities.contains(entity)) {
+                        removedLinks.add(new GraphDataDTO.LinkDTO(entity, entry.getKey(), CONTAINS));
+                        entityRefDelta.merge(entity, -1, Integer::sum);
+                    }
+                }
+            }
+
+            // 实体节点随引用计数在 0 与正数之间切换而出现或消失
+            for (Map.Entry<String, Integer> entry : entityRefDelta.entrySet()) {
+                if (entry.getValue() == 0) {
+                    continue;
+                }
+                int now = countInView(entry.getKey(), domain);
+                int then = now - entry.getValue();
+                if (then == 0 && now > 0) {
+                    upserted.add(entityNode(entry.getKey()));
+                } else if (then > 0 && now == 0) {
+                    removed.add(entry.getKey());
+                }
+            }
+            return new GraphDeltaDTO(sinceVersion, version, false, upserted, removed, addedLinks, removedLinks);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 视图内（带实体、领域匹配）笔记的副本，供聚类等离线计算使用。
+     */
+    public List<GraphNote> notesInView(String domain) {
+        lock.readLock().lock();
+        try {
+            List<GraphNote> result = new ArrayList<>();
+            for (GraphNote note : notes.values()) {
+                if (inView(note, domain)) {
+                    result.add(note);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 各领域的活跃笔记数，按数量降序。
+     */
+    public Map<String, Integer> domainCounts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            for (GraphNote note : notes.values()) {
+                if (NoteIndexSource.isPresent(note.domain())) {
+                    counts.merge(note.domain(), 1, Integer::sum);
+                }
+            }
+            Map<String, Integer> sorted = new LinkedHashMap<>();
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+            return sorted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int countInView(String entity, String domain) {
+        Set<String> noteIds = noteIdsByEntity.get(entity);
+        if (noteIds == null) {
+            return 0;
+        }
+        if (domain == null) {
+            return noteIds.size();
+        }
+        int count = 0;
+        for (String noteId : noteIds) {
+            if (domain.equals(notes.get(noteId).domain())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // 与原 findNotesForGraph 口径一致：只有带实体的笔记进入图谱
+    private static boolean inView(GraphNote note, String domain) {
+        return note != null && !note.entities().isEmpty() && (domain == null || domain.equals(note.domain()));
+    }
+
+    private static boolean sameNode(GraphNote before, GraphNote after) {
+        return before != null && Objects.equals(before.title(), after.title());
+    }
+
+    private static GraphDataDTO.NodeDTO noteNode(GraphNote note) {
+        return new GraphDataDTO.NodeDTO(note.id(), note.title(), NOTE_GROUP, 1);
+    }
+
+    private static GraphDataDTO.NodeDTO entityNode(String entity) {
+        return new GraphDataDTO.NodeDTO(entity, entity, ENTITY_GROUP, 10);
+    }
+
+    private void putLocked(GraphNote note) {
+        notes.put(note.id(), note);
+        for (String entity : note.entities()) {
+            noteIdsByEntity.computeIfAbsent(entity, k -> new HashSet<>()).add(note.id());
+        }
+    }
+
+    private void removeLocked(String noteId) {
+        GraphNote previous = notes.remove(noteId);
+        if (previous == null) {
+            return;
+        }
+        for (String entity : previous.entities()) {
+            Set<String> noteIds = noteIdsByEntity.get(entity);
+            if (noteIds != null) {
+                noteIds.remove(noteId);
+                if (noteIds.isEmpty()) {
+                    noteIdsByEntity.remove(entity);
+                }
+            }
+        }
+    }
+
+    private static GraphNote toGraphNote(NoteIndexSource.NoteFacets note) {
+        return new GraphNote(note.id(), note.title(), note.domain(), note.entities());
+    }
+}
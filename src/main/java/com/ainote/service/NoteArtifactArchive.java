@@ -0,0 +1,128 @@
+package com.ainote.service;
+
+import com.ainote.dto.NoteAnalysisResult;
+import com.ainote.repository.NoteChunkRepository;
+import com.ainote.repository.NoteRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 笔记分块与命题向量的版本归档：重新向量化前把当前产物按正文 MD5 归档，
+ * 回滚到某个历史版本时若其正文的产物仍在归档中，直接恢复分块、命题与向量，跳过 AST 切分、LLM 命题提取与 embedding。
+ * <p>
+ * 归档行保留原分块 ID，恢复后向量 metadata 中的 chunk_id 仍指向对应分块；每篇笔记只保留最近的若干个内容版本。
+ * 数据库未安装 pgvector（schema.sql 不会创建 vector_store_archive）时归档与恢复均不生效。
+ */
+@Slf4j
+@Service
+public class NoteArtifactArchive {
+
+    private final NoteRepository noteRepository;
+    private final NoteChunkRepository noteChunkRepository;
+    private final ObjectMapper mapper;
+    private final int keepVersions;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean archiveTableExists;
+
+    public NoteArtifactArchive(NoteRepository noteRepository, NoteChunkRepository noteChunkRepository,
+            ObjectMapper mapper, @Value("${ainote.rollback.archived-versions:5}") int keepVersions) {
+        this.noteRepository = noteRepository;
+        this.noteChunkRepository = noteChunkRepository;
+        this.mapper = mapper;
+        this.keepVersions = keepVersions;
+    }
+
+    /**
+     * 归档笔记当前的分块与向量（调用方随后负责清除在线数据）。旧数据的向量没有 content_hash，无法复用，直接跳过。
+     */
+    @Transactional
+    public void archiveCurrent(String noteId) {
+        if (!archiveAvailable()) {
+            return;
+        }
+        String contentHash = noteRepository.findVectorContentHash(noteId);
+        if (contentHash == null) {
+            return;
+        }
+        noteRepository.deleteArchivedVectors(noteId, contentHash);
+        noteChunkRepository.deleteArchivedChunks(noteId, contentHash);
+        int vectors = noteRepository.archiveVectors(noteId, contentHash);
+        int chunks = noteChunkRepository.archiveChunks(noteId, contentHash);
+        noteRepository.pruneArchivedVectors(noteId, keepVersions);
+        noteChunkRepository.pruneArchivedChunks(noteId, keepVersions);
+        log.debug("Archived {} chunks and {} vectors of Note {} (content {}).", chunks, vectors, noteId, contentHash);
+    }
+
+    /**
+     * 用归档中正文为 contentHash 的分块与向量替换笔记当前的产物。
+     *
+     * @return 归档中没有该版本的产物时返回 false，调用方需重新向量化
+     */
+    @Transactional
+    public boolean restore(String noteId, String contentHash, String title, NoteAnalysisResult analysisResult) {
+        if (!archiveAvailable()) {
+            return false;
+        }
+        if (contentHash.equals(noteRepository.findVectorContentHash(noteId))) {
+            return true;
+        }
+        if (noteRepository.countArchivedVectors(noteId, contentHash) == 0) {
+            return false;
+        }
+
+        archiveCurrent(noteId);
+        noteRepository.deleteVectorsByNoteId(noteId);
+        noteChunkRepository.deleteByNoteId(noteId);
+
+        int chunks = noteChunkRepository.restoreArchivedChunks(noteId, contentHash);
+        int vectors = noteRepository.restoreArchivedVectors(noteId, contentHash,
+                metadataPatch(title, analysisResult));
+        noteRepository.deleteArchivedVectors(noteId, contentHash);
+        noteChunkRepository.deleteArchivedChunks(noteId, contentHash);
+        log.info("Restored {} chunks and {} vectors of Note {} from archive (content {}).", chunks, vectors, noteId,
+                contentHash);
+        return true;
+    }
+
+    // 先于归档查询检查：缺表的语句失败会使所在事务整体中止，无法在调用方捕获后继续
+    private boolean archiveAvailable() {
+        if (archiveTableExists == null) {
+            Number count = (Number) entityManager.createNativeQuery(
+                    "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'vector_store_archive'")
+                    .getSingleResult();
+            archiveTableExists = count.intValue() > 0;
+            if (!archiveTableExists) {
+                log.info("vector_store_archive is missing (pgvector unavailable), rollback artifact archive disabled.");
+            }
+        }
+        return archiveTableExists;
+    }
+
+    // 与 vectorizeContent 写入的基础元数据保持一致
+    private String metadataPatch(String title, NoteAnalysisResult analysisResult) {
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("title", title != null ? title : "");
+        if (analysisResult != null) {
+            if (analysisResult.primaryDomain() != null)
+                patch.put("primaryDomain", analysisResult.primaryDomain());
+            if (analysisResult.contentType() != null)
+                patch.put("contentType", analysisResult.contentType());
+        }
+        try {
+            return mapper.writeValueAsString(patch);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize vector metadata patch", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ainote.service;
+
+import com.ainote.dto.NoteAnalysisResult;
+import com.ainote.entity.Note;
+import com.ainote.enums.NoteChangeType;
+import com.ainote.event.NoteChangedEvent;
+import com.ainote.repository.NoteRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 内存索引（实体倒排索引、标签联想、知识图谱模型）的共用数据源。
+ * <p>
+ * 启动时只执行一次 findNotesForIndex 并把结果分发给所有 {@link Subscriber}；
+ * 每个 {@link NoteChangedEvent} 只读取一次笔记，再依次通知各索引。
+ * ai_metadata 中实体 JSON 的解析与 "null" 占位值过滤统一在此完成。
+ */
+@Slf4j
+@Service
+public class NoteIndexSource {
+
+    // 单篇笔记参与实体对计算（共现、聚类）的实体上限，防止个别超长实体列表产生平方级实体对
+    public static final int MAX_ENTITIES_PER_NOTE = 30;
+
+    /**
+     * 索引所需的笔记字段；entities 已去除空值与 "null" 并去重（保持原顺序）。
+     */
+    public record NoteFacets(String id, String title, String domain, String contentType, List<String> entities) {
+    }
+
+    /**
+     * 由本数据源驱动的内存索引。
+     */
+    public interface Subscriber {
+        void rebuild(List<NoteFacets> notes);
+
+        /**
+         * @param note 变更后的笔记；已删除或不存在时为 null
+         */
+        void onNoteChanged(String noteId, NoteFacets note);
+    }
+
+    private final NoteRepository noteRepository;
+    private final ObjectMapper mapper;
+    private final List<Subscriber> subscribers;
+
+    public NoteIndexSource(NoteRepository noteRepository, ObjectMapper mapper, List<Subscriber> subscribers) {
+        this.noteRepository = noteRepository;
+        this.mapper = mapper;
+        this.subscribers = subscribers;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = noteRepository.findNotesForIndex();
+        List<NoteFacets> notes = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            notes.add(new NoteFacets((String) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    parseEntities((String) row[4])));
+        }
+        log.info("Loaded {} notes for in-memory indexes in {} ms", notes.size(), System.currentTimeMillis() - start);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.rebuild(notes);
+        }
+    }
+
+    // 优先于其他监听器执行，保证派生数据（相关推荐等）读到最新索引
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        NoteFacets note = event.getChangeType() == NoteChangeType.DELETED ? null
+                : noteRepository.findById(event.getNoteId())
+                        .filter(n -> !n.isDeleted())
+                        .map(NoteIndexSource::toFacets)
+                        .orElse(null);
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.onNoteChanged(event.getNoteId(), note);
+            } catch (Exception e) {
+                log.error("Failed to update {} for Note [{}]: {}", subscriber.getClass().getSimpleName(),
+                        event.getNoteId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    public static NoteFacets toFacets(Note note) {
+        NoteAnalysisResult metadata = note.getAiMetadata();
+        return new NoteFacets(note.getId(), note.getTitle(),
+                metadata != null ? metadata.primaryDomain() : null,
+                metadata != null ? metadata.contentType() : null,
+                metadata != null ? cleanEntities(metadata.entities()) : Collections.emptyList());
+    }
+
+    /**
+     * 解析 findNotesForIndex 返回的实体 JSON 数组。
+     */
+    public List<String> parseEntities(String entitiesJson) {
+        if (entitiesJson == null || entitiesJson.equals("null")) {
+            return Collections.emptyList();
+        }
+        try {
+            JsonNode arr = mapper.readTree(entitiesJson);
+            if (!arr.isArray()) {
+                return Collections.emptyList();
+            }
+            List<String> entities = new ArrayList<>(arr.size());
+            for (JsonNode n : arr) {
+                entities.add(n.asText());
+            }
+            return cleanEntities(entities);
+        } catch (Exception e) {
+            log.warn("Failed to parse entities JSON for in-memory indexes: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    public static List<String> cleanEntities(List<String> entities) {
+        if (entities == null) {
+            return Collections.emptyList();
+        }
+        Set<String> cleaned = new LinkedHashSet<>();
+        for (String entity : entities) {
+            if (isPresent(entity)) {
+                cleaned.add(entity);
+            }
+        }
+        return List.copyOf(cleaned);
+    }
+
+    // LLM 偶尔把缺失字段输出为字符串 "null"
+    public static boolean isPresent(String value) {
+        return value != null && !value.isBlank() && !value.equals("null");
+    }
+}
@@ -0,0 +1,117 @@
+package com.ainote.service;
+
+import com.ainote.entity.NoteProgress;
+import com.ainote.enums.NoteStatus;
+import com.ainote.repository.NoteProgressRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 笔记处理进度的轻量存储：进度更新只写内存，按固定间隔合并落库到 note_progress 表，
+ * 同一笔记在一个周期内的多次更新只写最后一次；终态（完成 / 失败）立即落库。
+ * <p>
+ * 笔记的生命周期状态仍以 Note.status 为准，这里只保存处理过程中的实时进度与提示信息；
+ * 笔记被删除或合并后由 {@link #remove} 清除对应记录。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NoteProgressStore {
+
+    public record Progress(NoteStatus status, String message, LocalDateTime updatedAt) {
+    }
+
+    private final NoteProgressRepository progressRepository;
+
+    // 处理中笔记的最新进度（终态落库后移除）
+    private final Map<String, Progress> inFlight = new ConcurrentHashMap<>();
+    // 尚未落库的进度
+    private final Map<String, Progress> pending = new ConcurrentHashMap<>();
+
+    public void update(String noteId, NoteStatus status, String message) {
+        Progress progress = new Progress(status, message, LocalDateTime.now());
+        if (isTerminal(status)) {
+            saveTerminal(noteId, progress);
+        } else {
+            inFlight.put(noteId, progress);
+            pending.put(noteId, progress);
+        }
+    }
+
+    public Optional<Progress> get(String noteId) {
+        Progress progress = inFlight.get(noteId);
+        if (progress != null) {
+            return Optional.of(progress);
+        }
+        return progressRepository.findById(noteId)
+                .map(row -> new Progress(row.getStatus(), row.getMessage(), row.getUpdatedAt()));
+    }
+
+    /**
+     * 清除笔记的进度（内存与 note_progress 表）。
+     */
+    public synchronized void remove(String noteId) {
+        pending.remove(noteId);
+        inFlight.remove(noteId);
+        progressRepository.deleteById(noteId);
+    }
+
+    @Scheduled(fixedDelayString = "${ainote.progress.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<NoteProgress> rows = new ArrayList<>();
+        for (Map.Entry<String, Progress> entry : pending.entrySet()) {
+            // 条件删除：取走后若又有新进度写入，留待下个周期
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                rows.add(toRow(entry.getKey(), entry.getValue()));
+            }
+        }
+        try {
+            progressRepository.saveAll(rows);
+            log.debug("Flushed {} note progress updates.", rows.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush {} note progress updates: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // 与 flush 互斥，避免周期刷新把较早的处理中进度写在终态之后
+    private synchronized void saveTerminal(String noteId, Progress progress) {
+        pending.remove(noteId);
+        inFlight.remove(noteId);
+        try {
+            progressRepository.save(toRow(noteId, progress));
+        } catch (Exception e) {
+            log.warn("Failed to save final progress for note {}: {}", noteId, e.getMessage());
+        }
+    }
+
+    public static boolean isTerminal(NoteStatus status) {
+        return status == NoteStatus.COMPLETED || status == NoteStatus.FAILED;
+    }
+
+    private static NoteProgress toRow(String noteId, Progress progress) {
+        NoteProgress row = new NoteProgress();
+        row.setNoteId(noteId);
+        row.setStatus(progress.status());
+        row.setMessage(progress.message());
+        row.setUpdatedAt(progress.updatedAt());
+        return row;
+    }
+}
@@ -0,0 +1,213 @@
+package com.ainote.service;
+
+import com.ainote.dto.NoteAnalysisResult;
+import com.ainote.entity.Note;
+import com.ainote.entity.NoteRevisionContent;
+import com.ainote.repository.NoteRepository;
+import com.ainote.repository.NoteRevisionContentRepository;
+import com.ainote.util.LineDelta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 笔记正文的历史版本存储：周期性完整快照 + 快照之间的行级增量，按需回放出任意版本。
+ * <p>
+ * Note 的 content / ai_metadata 不再由 Envers 审计（每次状态变更都会整行复制），
+ * 历史修订的这两个字段改由本存储按笔记 @Version 号提供：某个修订的正文即版本号不大于该修订版本号的最后一条记录。
+ * 引入本存储之前的修订没有记录，回退读取审计表中遗留的 content / ai_metadata 列；两处都无法还原时正文为 null。
+ * 修改正文或元数据的保存须经 {@link #saveWithRevision}，笔记行与历史记录在同一事务内写入。
+ */
+@Slf4j
+@Service
+public class NoteRevisionStore {
+
+    public record RevisionContent(String content, NoteAnalysisResult aiMetadata) {
+    }
+
+    // 回放链的中间状态：正文、元数据 JSON、链长度
+    private record Replayed(String content, String aiMetadata, int length) {
+    }
+
+    private final NoteRepository noteRepository;
+    private final NoteRevisionContentRepository repository;
+    private final ObjectMapper mapper;
+    private final int snapshotInterval;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean legacyAuditColumns;
+
+    public NoteRevisionStore(NoteRepository noteRepository, NoteRevisionContentRepository repository,
+            ObjectMapper mapper, @Value("${ainote.revision.snapshot-interval:10}") int snapshotInterval) {
+        this.noteRepository = noteRepository;
+        this.repository = repository;
+        this.mapper = mapper;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * 保存笔记并记录保存后的正文与元数据（内容未变化时不写历史）。两者同属一个事务：
+     * 历史写入失败时笔记的保存一并回滚，不会出现缺失正文的修订。
+     *
+     * @return 已落库（版本号已递增）的实体
+     */
+    @Transactional
+    public Note saveWithRevision(Note note) {
+        Note saved = noteRepository.saveAndFlush(note);
+        record(saved);
+        return saved;
+    }
+
+    private void record(Note note) {
+        String content = note.getContent() != null ? note.getContent() : "";
+        String aiMetadata = toJson(note.getAiMetadata());
+
+        NoteRevisionContent row = new NoteRevisionContent();
+        row.setNoteId(note.getId());
+        row.setNoteVersion(note.getVersion());
+        row.setContentHash(DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)));
+
+        Optional<NoteRevisionContent> latestOpt = repository.findTopByNoteIdOrderByNoteVersionDesc(note.getId());
+        if (latestOpt.isPresent() && latestOpt.get().getNoteVersion() >= note.getVersion()) {
+            return;
+        }
+        Replayed previous = latestOpt
+                .map(latest -> replay(chainUpTo(note.getId(), latest.getNoteVersion())))
+                .orElse(null);
+        if (previous == null) {
+            saveSnapshot(row, content, aiMetadata);
+            return;
+        }
+        NoteRevisionContent latest = latestOpt.get();
+
+        boolean contentChanged = !row.getContentHash().equals(latest.getContentHash());
+        boolean metadataChanged = !Objects.equals(aiMetadata, previous.aiMetadata());
+        if (!contentChanged && !metadataChanged) {
+            return;
+        }
+
+        String delta = LineDelta.encode(previous.content(), content);
+        // 增量链过长、增量接近全文，或元数据被清空（增量记录中 null 表示未变化）时改写快照
+        if (previous.length() > snapshotInterval || delta.length() > content.length() / 2
+                || (metadataChanged && aiMetadata == null)) {
+            saveSnapshot(row, content, aiMetadata);
+            return;
+        }
+        row.setSnapshot(false);
+        row.setContent(delta);
+        row.setAiMetadata(metadataChanged ? aiMetadata : null);
+        repository.save(row);
+    }
+
+    /**
+     * 回放指定笔记版本的正文与元数据。
+     *
+     * @param revision 对应的 Envers 修订号，仅用于回退读取遗留审计列
+     */
+    @Transactional(readOnly = true)
+    public Optional<RevisionContent> contentAt(String noteId, long noteVersion, Number revision) {
+        List<NoteRevisionContent> chain = chainUpTo(noteId, noteVersion);
+        if (chain.isEmpty()) {
+            return legacyContent(noteId, revision);
+        }
+        Replayed replayed = replay(chain);
+        return Optional.of(new RevisionContent(replayed.content(), fromJson(replayed.aiMetadata())));
+    }
+
+    private void saveSnapshot(NoteRevisionContent row, String content, String aiMetadata) {
+        row.setSnapshot(true);
+        row.setContent(content);
+        row.setAiMetadata(aiMetadata);
+        repository.save(row);
+    }
+
+    // 不晚于 noteVersion 的最近一个快照及其后的增量，按版本升序
+    private List<NoteRevisionContent> chainUpTo(String noteId, long noteVersion) {
+        return repository
+                .findTopByNoteIdAndNoteVersionLessThanEqualAndSnapshotTrueOrderByNoteVersionDesc(noteId, noteVersion)
+                .map(snapshot -> repository.findByNoteIdAndNoteVersionBetweenOrderByNoteVersionAsc(noteId,
+                        snapshot.getNoteVersion(), noteVersion))
+                .orElse(Collections.emptyList());
+    }
+
+    private static Replayed replay(List<NoteRevisionContent> chain) {
+        if (chain.isEmpty()) {
+            return null;
+        }
+        String content = chain.get(0).getContent();
+        String aiMetadata = chain.get(0).getAiMetadata();
+        for (NoteRevisionContent row : chain.subList(1, chain.size())) {
+            content = LineDelta.apply(content, row.getContent());
+            if (row.getAiMetadata() != null) {
+                aiMetadata = row.getAiMetadata();
+            }
+        }
+        return new Replayed(content, aiMetadata, chain.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<RevisionContent> legacyContent(String noteId, Number revision) {
+        if (revision == null || !hasLegacyAuditColumns()) {
+            return Optional.empty();
+        }
+        // 升级后仅改状态的修订（删除、恢复等）不写历史，审计列也为 NULL，正文沿用此前最近一次审计到的内容
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "SELECT content, CAST(ai_metadata AS TEXT) FROM notes_aud WHERE id = :id AND rev <= :rev "
+                        + "AND content IS NOT NULL ORDER BY rev DESC LIMIT 1")
+                .setParameter("id", noteId)
+                .setParameter("rev", revision.intValue())
+                .getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new RevisionContent((String) rows.get(0)[0], fromJson((String) rows.get(0)[1])));
+    }
+
+    private boolean hasLegacyAuditColumns() {
+        if (legacyAuditColumns == null) {
+            Number count = (Number) entityManager.createNativeQuery(
+                    "SELECT COUNT(*) FROM information_schema.columns WHERE table_name = 'notes_aud' "
+                            + "AND column_name IN ('content', 'ai_metadata')")
+                    .getSingleResult();
+            legacyAuditColumns = count.intValue() == 2;
+        }
+        return legacyAuditColumns;
+    }
+
+    private String toJson(NoteAnalysisResult aiMetadata) {
+        if (aiMetadata == null) {
+            return null;
+        }
+        try {
+            return mapper.writeValueAsString(aiMetadata);
+        } catch (Exception e) {
+            log.warn("Failed to serialize ai metadata for revision store: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private NoteAnalysisResult fromJson(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return mapper.readValue(json, NoteAnalysisResult.class);
+        } catch (Exception e) {
+            log.warn("Failed to parse stored ai metadata: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -4,17 +4,20 @@ import com.ainote.common.PageData;
 import com.ainote.dto.ChatResponseDTO;
 import com.ainote.dto.DrilledPropositionDTO;
 import com.ainote.dto.GraphDataDTO;
+import com.ainote.dto.GraphDeltaDTO;
 import com.ainote.dto.NoteAnalysisResult;
 import com.ainote.dto.NoteHistoryDTO;
 import com.ainote.dto.NoteRequestDTO;
 import com.ainote.dto.NoteResponseDTO;
 import com.ainote.dto.NoteSummaryDTO;
 import com.ainote.dto.PolishRequestDTO;
+import com.ainote.dto.RevisionDiffDTO;
 import com.ainote.dto.SearchResultDTO;
 import com.ainote.dto.TagStatDTO;
 import com.ainote.entity.Note;
 import com.ainote.enums.NoteStatus;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
@@ -35,13 +38,23 @@ public interface NoteService {
 
         SseEmitter subscribeToStatus(String noteId);
 
+        Map<String, String> getNoteStatus(String noteId);
+
         List<SearchResultDTO> semanticSearch(String query, double threshold);
 
+        PageData<SearchResultDTO> searchPage(String query, double threshold, Integer topK, Integer candidates,
+                        String cursor);
+
+        Flux<ServerSentEvent<List<SearchResultDTO>>> streamSemanticSearch(String query, double threshold);
+
         String chatWithNotes(String query);
 
         ChatResponseDTO chatWithNotes(String query, String filterDomain, String filterType,
                         String sessionId);
 
+        Flux<ServerSentEvent<Object>> streamChatWithNotes(String query, String filterDomain, String filterType,
+                        String sessionId);
+
         String generateEntityWiki(String entityName, boolean force);
 
         Map<String, List<TagStatDTO>> getKnowledgeTags();
@@ -65,6 +78,10 @@ public interface NoteService {
 
         GraphDataDTO getKnowledgeGraph(String domain);
 
+        GraphDeltaDTO getKnowledgeGraphDelta(long sinceVersion, String domain);
+
+        GraphDataDTO getClusteredGraph(String domain, Integer maxNodes);
+
         GraphDataDTO getInitialGraph();
 
         GraphDataDTO expandGraphNode(String nodeId, String nodeType);
@@ -75,8 +92,12 @@ public interface NoteService {
 
         List<NoteHistoryDTO> getNoteHistory(String noteId);
 
+        PageData<NoteHistoryDTO> getNoteHistoryPage(String noteId, String cursor, Integer size);
+
         Note getNoteRevision(String noteId, Number revision);
 
+        RevisionDiffDTO diffNoteRevisions(String noteId, Number fromRevision, Number toRevision);
+
         void rollbackNote(String noteId, Number revision);
 
         Map<String, List<String>> suggestTags(String keyword);
@@ -88,5 +109,9 @@ public interface NoteService {
 
         List<SearchResultDTO> getSimilarNotes(String id);
 
+        void refreshRelatedNotes(String noteId);
+
+        void removeRelatedNotes(String noteId);
+
         List<DrilledPropositionDTO> drillDownConcept(String concept);
 }
@@ -0,0 +1,128 @@
+package com.ainote.service;
+
+import com.ainote.dto.NoteAnalysisResult;
+import com.ainote.entity.Note;
+import com.ainote.entity.NoteTag;
+import com.ainote.enums.NoteTagType;
+import com.ainote.repository.NoteRepository;
+import com.ainote.repository.NoteTagRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 维护 note_tags 标签表：将笔记 ai_metadata 中的实体、领域与内容类别展开为可索引的行，
+ * 供标签统计、联想与图谱查询使用，避免在查询时对 JSONB 做全表展开。
+ * <p>
+ * 写入由事务提交后的 NoteChangedEvent 触发，此时发布方的事务已结束，因此 sync / remove 总是开启新事务；
+ * 启动时再与 notes 表对账一次，修正事件丢失造成的偏差。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NoteTagService {
+
+    private static final int RECONCILE_BATCH_SIZE = 200;
+
+    // 对账时比较的标签内容（不含行 ID）
+    private record TagKey(NoteTagType type, String name) {
+    }
+
+    private final NoteRepository noteRepository;
+    private final NoteTagRepository noteTagRepository;
+
+    /**
+     * 以笔记当前的分析结果覆盖其标签行；笔记不存在或已删除时仅清除。
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void sync(String noteId) {
+        noteTagRepository.deleteByNoteId(noteId);
+        Optional<Note> noteOpt = noteRepository.findById(noteId);
+        if (noteOpt.isPresent() && !noteOpt.get().isDeleted()) {
+            noteTagRepository.saveAll(toTags(noteId, noteOpt.get().getAiMetadata()));
+        }
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void remove(String noteId) {
+        noteTagRepository.deleteByNoteId(noteId);
+    }
+
+    /**
+     * 启动对账：删除已删除笔记的标签，并重写标签与 ai_metadata 不一致（含缺失）的活跃笔记。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        int orphaned = noteTagRepository.deleteOrphaned();
+        List<String> noteIds = noteTagRepository.findActiveNoteIds();
+        int rewritten = 0;
+        for (int from = 0; from < noteIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<String> batch = noteIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, noteIds.size()));
+            Map<String, Set<TagKey>> stored = new HashMap<>();
+            for (NoteTag tag : noteTagRepository.findByNoteIdIn(batch)) {
+                stored.computeIfAbsent(tag.getNoteId(), id -> new HashSet<>()).add(key(tag));
+            }
+            List<String> drifted = new ArrayList<>();
+            List<NoteTag> tags = new ArrayList<>();
+            for (Note note : noteRepository.findAllById(batch)) {
+                List<NoteTag> expected = toTags(note.getId(), note.getAiMetadata());
+                Set<TagKey> expectedKeys = new HashSet<>();
+                expected.forEach(tag -> expectedKeys.add(key(tag)));
+                if (!expectedKeys.equals(stored.getOrDefault(note.getId(), Set.of()))) {
+                    drifted.add(note.getId());
+                    tags.addAll(expected);
+                }
+            }
+            if (!drifted.isEmpty()) {
+                noteTagRepository.deleteByNoteIdIn(drifted);
+                noteTagRepository.saveAll(tags);
+                rewritten += drifted.size();
+            }
+        }
+        if (orphaned > 0 || rewritten > 0) {
+            log.info("Reconciled note tags: removed {} orphaned tags, rewrote tags of {} notes in {} ms", orphaned,
+                    rewritten, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static TagKey key(NoteTag tag) {
+        return new TagKey(tag.getTagType(), tag.getName());
+    }
+
+    private static List<NoteTag> toTags(String noteId, NoteAnalysisResult metadata) {
+        List<NoteTag> tags = new ArrayList<>();
+        if (metadata == null) {
+            return tags;
+        }
+        NoteIndexSource.cleanEntities(metadata.entities())
+                .forEach(entity -> tags.add(tag(noteId, NoteTagType.ENTITY, entity)));
+        if (NoteIndexSource.isPresent(metadata.primaryDomain())) {
+            tags.add(tag(noteId, NoteTagType.DOMAIN, metadata.primaryDomain()));
+        }
+        if (NoteIndexSource.isPresent(metadata.contentType())) {
+            tags.add(tag(noteId, NoteTagType.CONTENT_TYPE, metadata.contentType()));
+        }
+        return tags;
+    }
+
+    private static NoteTag tag(String noteId, NoteTagType type, String name) {
+        NoteTag tag = new NoteTag();
+        tag.setNoteId(noteId);
+        tag.setTagType(type);
+        tag.setName(name);
+        return tag;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ainote.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 单飞（single-flight）请求合并器：相同操作 + 相同 key 的并发请求只执行一次上游计算，
+ * 其余请求等待并共享同一个结果。计算结束后立即移除，不承担缓存职责。
+ */
+@Slf4j
+@Service
+public class RequestCoalescer {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("ainote.coalescer.in_flight", inFlight, ConcurrentHashMap::size);
+    }
+
+    /**
+     * 执行（或加入正在执行的）计算。
+     *
+     * @param operation 操作名，用于隔离不同接口并作为指标标签
+     * @param key       请求的归一化参数
+     * @param supplier  实际的上游计算
+     * @return 计算结果；合并的请求拿到的是同一个对象，调用方不得修改
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String key, Supplier<T> supplier) {
+        String flightKey = operation + '\u0000' + key;
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, created);
+
+        if (existing != null) {
+            counter(operation, "coalesced").increment();
+            log.debug("Coalesced concurrent [{}] request for key [{}]", operation, key);
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                throw e;
+            }
+        }
+
+        counter(operation, "leader").increment();
+        try {
+            T result = supplier.get();
+            created.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, created);
+        }
+    }
+
+    private Counter counter(String operation, String role) {
+        return Counter.builder("ainote.coalescer.requests")
+                .description("Requests served by the single-flight coalescer")
+                .tag("operation", operation)
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+}
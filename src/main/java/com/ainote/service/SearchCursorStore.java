@@ -0,0 +1,83 @@
+package com.ainote.service;
+
+import com.ainote.common.BusinessException;
+import com.ainote.common.ErrorCodeEnum;
+import com.ainote.common.PageData;
+import com.ainote.dto.SearchResultDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 搜索游标存储：首屏检索 + Rerank 得到的完整排序结果在服务端短暂保留，
+ * 后续翻页直接按游标切片返回，无需再次向量检索或 Rerank。
+ * <p>
+ * 游标格式为 {@code <结果集ID>:<偏移量>}，结果集本身只读，因此同一游标可重复请求。
+ */
+@Slf4j
+@Service
+public class SearchCursorStore {
+
+    private final Cache<String, List<SearchResultDTO>> resultSets;
+
+    public SearchCursorStore(@Value("${ainote.search.cursor-ttl-seconds:300}") long ttlSeconds,
+            @Value("${ainote.search.cursor-max-entries:1000}") long maxEntries) {
+        this.resultSets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    /**
+     * 返回排序结果的第一页；若还有剩余结果，则登记结果集并生成下一页游标。
+     */
+    public PageData<SearchResultDTO> firstPage(List<SearchResultDTO> rankedResults, int pageSize) {
+        if (rankedResults.size() <= pageSize) {
+            return PageData.ofCursor(new ArrayList<>(rankedResults), rankedResults.size(), pageSize, null);
+        }
+        String resultSetId = UUID.randomUUID().toString();
+        resultSets.put(resultSetId, List.copyOf(rankedResults));
+        return slice(resultSetId, rankedResults, 0, pageSize);
+    }
+
+    /**
+     * 按游标读取后续页面。
+     *
+     * @throws BusinessException 游标格式非法或已过期
+     */
+    public PageData<SearchResultDTO> nextPage(String cursor, int pageSize) {
+        int sep = cursor.lastIndexOf(':');
+        if (sep <= 0) {
+            throw new BusinessException(ErrorCodeEnum.PARAM_ERROR, "Invalid search cursor: " + cursor);
+        }
+        String resultSetId = cursor.substring(0, sep);
+        int offset;
+        try {
+            offset = Integer.parseInt(cursor.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCodeEnum.PARAM_ERROR, "Invalid search cursor: " + cursor);
+        }
+
+        List<SearchResultDTO> results = resultSets.getIfPresent(resultSetId);
+        if (results == null) {
+            log.debug("Search cursor [{}] expired or unknown.", cursor);
+            throw new BusinessException(ErrorCodeEnum.PARAM_ERROR, "Search cursor expired, please search again.");
+        }
+        return slice(resultSetId, results, offset, pageSize);
+    }
+
+    private static PageData<SearchResultDTO> slice(String resultSetId, List<SearchResultDTO> results, int offset,
+            int pageSize) {
+        int from = Math.min(Math.max(offset, 0), results.size());
+        int to = Math.min(from + pageSize, results.size());
+        String nextCursor = to < results.size() ? resultSetId + ":" + to : null;
+        return PageData.ofCursor(new ArrayList<>(results.subList(from, to)), results.size(), pageSize, nextCursor);
+    }
+}
@@ -0,0 +1,173 @@
+package com.ainote.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 会话级检索状态：记录上一轮问答的查询向量与存活候选切片。
+ * <p>
+ * 追问的查询向量与上一轮足够接近（且过滤条件相同）时，直接在旧候选集上用余弦相似度本地重排，
+ * 省去向量检索与 Rerank；话题切换时由调用方重新检索并覆盖状态。
+ * 候选只保留 ID、正文、元数据与 float 向量（不持有向量库返回的 Document 及其 Double 向量），
+ * 缓存按估算字节数限制总量。
+ */
+@Slf4j
+@Service
+public class SessionRetrievalCache {
+
+    /**
+     * 候选切片；relevance 为上一轮 Rerank 的相关度（Rerank 失败时为 NaN）。
+     */
+    private static final class Candidate {
+        private final String id;
+        private final String content;
+        private final HashMap<String, Object> metadata;
+        private final double relevance;
+        private volatile float[] embedding;
+
+        private Candidate(Document doc, double relevance) {
+            this.id = doc.getId();
+            this.content = doc.getContent() != null ? doc.getContent() : "";
+            this.metadata = new HashMap<>(doc.getMetadata());
+            this.relevance = relevance;
+            // 向量库已返回 embedding 时直接转存为 float，否则在首次复用时补算
+            List<Double> stored = doc.getEmbedding();
+            this.embedding = stored != null && !stored.isEmpty() ? toFloats(stored) : null;
+        }
+
+        private Document toDocument() {
+            return new Document(id, content, new HashMap<>(metadata));
+        }
+    }
+
+    private record RetrievalState(float[] queryEmbedding, String filterDomain, String filterType,
+            List<Candidate> candidates) {
+
+        // 估算占用字节：正文按 UTF-16 计，每个候选向量与查询向量等长
+        private int weight() {
+            long bytes = (long) queryEmbedding.length * 4;
+            for (Candidate candidate : candidates) {
+                bytes += candidate.content.length() * 2L + (long) queryEmbedding.length * 4 + 256;
+            }
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+    }
+
+    private record ScoredCandidate(Candidate candidate, double score) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final double followUpSimilarity;
+    private final Cache<String, RetrievalState> states;
+
+    public SessionRetrievalCache(EmbeddingModel embeddingModel,
+            @Value("${ainote.chat.follow-up-similarity:0.85}") double followUpSimilarity,
+            @Value("${ainote.chat-memory.idle-ttl-minutes:30}") long idleTtlMinutes,
+            @Value("${ainote.chat.retrieval-reuse-max-bytes:67108864}") long maxBytes) {
+        this.embeddingModel = embeddingModel;
+        this.followUpSimilarity = followUpSimilarity;
+        this.states = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(idleTtlMinutes))
+                .maximumWeight(maxBytes)
+                .weigher((String id, RetrievalState state) -> state.weight())
+                .build();
+    }
+
+    /**
+     * 尝试复用上一轮候选集：只保留上一轮 Rerank 相关度不低于 minRelevance 的候选（与重新检索的阈值一致），
+     * 再按与新查询的余弦相似度排序。
+     *
+     * @return 本地重排后的前 topK 个切片；不满足复用条件或没有候选达到阈值时返回 null
+     */
+    public List<Document> reuse(String sessionId, List<Double> queryEmbedding, String filterDomain,
+            String filterType, int topK, double minRelevance) {
+        RetrievalState state = states.getIfPresent(sessionId);
+        if (state == null || state.candidates().isEmpty()
+                || !Objects.equals(state.filterDomain(), filterDomain)
+                || !Objects.equals(state.filterType(), filterType)) {
+            return null;
+        }
+
+        float[] query = toFloats(queryEmbedding);
+        double similarity = cosine(query, state.queryEmbedding());
+        if (similarity < followUpSimilarity) {
+            log.debug("Topic shift in session [{}] (similarity {}), running fresh retrieval.", sessionId,
+                    String.format("%.3f", similarity));
+            return null;
+        }
+
+        List<Candidate> relevant = state.candidates().stream()
+                .filter(candidate -> candidate.relevance >= minRelevance)
+                .toList();
+        if (relevant.isEmpty()) {
+            return null;
+        }
+        ensureEmbeddings(relevant);
+        List<ScoredCandidate> scored = new ArrayList<>(relevant.size());
+        for (Candidate candidate : relevant) {
+            scored.add(new ScoredCandidate(candidate, cosine(query, candidate.embedding)));
+        }
+        scored.sort(Comparator.comparingDouble(ScoredCandidate::score).reversed());
+
+        log.debug("Reusing {} of {} retrieval candidates for follow-up in session [{}] (similarity {}).",
+                relevant.size(), state.candidates().size(), sessionId, String.format("%.3f", similarity));
+        return scored.stream().limit(topK).map(s -> s.candidate().toDocument()).toList();
+    }
+
+    /**
+     * 记录本轮的存活候选；relevanceScores 与 candidates 按下标对应。
+     */
+    public void remember(String sessionId, List<Double> queryEmbedding, String filterDomain, String filterType,
+            List<Document> candidates, double[] relevanceScores) {
+        List<Candidate> stored = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            stored.add(new Candidate(candidates.get(i), relevanceScores[i]));
+        }
+        states.put(sessionId, new RetrievalState(toFloats(queryEmbedding), filterDomain, filterType,
+                List.copyOf(stored)));
+    }
+
+    private void ensureEmbeddings(List<Candidate> candidates) {
+        List<Candidate> missing = candidates.stream().filter(c -> c.embedding == null).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<List<Double>> computed = embeddingModel.embed(missing.stream().map(c -> c.content).toList());
+        for (int i = 0; i < missing.size(); i++) {
+            missing.get(i).embedding = toFloats(computed.get(i));
+        }
+    }
+
+    private static float[] toFloats(List<Double> vector) {
+        float[] result = new float[vector.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = vector.get(i).floatValue();
+        }
+        return result;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0.0;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0.0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
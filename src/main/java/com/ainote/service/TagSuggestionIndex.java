@@ -0,0 +1,262 @@
+package com.ainote.service;
+
+import com.ainote.enums.NoteTagType;
+import com.ainote.event.NoteChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标签联想索引（实体 / 领域 / 内容类别），供 suggestTags 逐键联想使用，查询不访问数据库。
+ * <p>
+ * 每类标签维护一棵按小写名称排序的 TreeMap 做前缀匹配，并维护字符 n-gram（单字 + 二元组）倒排表
+ * 做中缀与中文匹配；结果先前缀后中缀，组内按使用该标签的笔记数降序。
+ * 启动时全量构建，之后随 {@link NoteChangedEvent} 按笔记增量增减计数。
+ */
+@Slf4j
+@Service
+public class TagSuggestionIndex implements NoteIndexSource.Subscriber {
+
+    private static final class Term {
+        private final String name;
+        private final String lowerName;
+        private int frequency;
+
+        private Term(String name, String lowerName) {
+            this.name = name;
+            this.lowerName = lowerName;
+        }
+    }
+
+    private record TagKey(NoteTagType type, String name) {
+    }
+
+    private static final Comparator<Term> BY_FREQUENCY = Comparator.<Term>comparingInt(t -> t.frequency).reversed()
+            .thenComparing(t -> t.name);
+
+    /**
+     * 单类标签的前缀树与 n-gram 倒排表。
+     */
+    private static final class TypeIndex {
+        private final TreeMap<String, Term> byLowerName = new TreeMap<>();
+        private final Map<String, Set<Term>> gramPostings = new HashMap<>();
+
+        private void increment(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            Term term = byLowerName.get(lower);
+            if (term == null) {
+                term = new Term(name, lower);
+                byLowerName.put(lower, term);
+                for (String gram : grams(lower)) {
+                    gramPostings.computeIfAbsent(gram, k -> new HashSet<>()).add(term);
+                }
+            }
+            term.frequency++;
+        }
+
+        private void decrement(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            Term term = byLowerName.get(lower);
+            if (term == null || --term.frequency > 0) {
+                return;
+            }
+            byLowerName.remove(lower);
+            for (String gram : grams(lower)) {
+                Set<Term> posting = gramPostings.get(gram);
+                if (posting != null) {
+                    posting.remove(term);
+                    if (posting.isEmpty()) {
+                        gramPostings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        private List<String> suggest(String keyword, int limit) {
+            String lower = keyword.toLowerCase(Locale.ROOT);
+
+            List<Term> prefixMatches = new ArrayList<>(
+                    byLowerName.subMap(lower, true, lower + Character.MAX_VALUE, true).values());
+            prefixMatches.sort(BY_FREQUENCY);
+
+            List<String> result = new ArrayList<>(limit);
+            Set<Term> seen = new HashSet<>();
+            for (Term term : prefixMatches) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                result.add(term.name);
+                seen.add(term);
+            }
+
+            List<Term> infixMatches = new ArrayList<>();
+            for (Term term : infixCandidates(lower)) {
+                if (!seen.contains(term) && term.lowerName.contains(lower)) {
+                    infixMatches.add(term);
+                }
+            }
+            infixMatches.sort(BY_FREQUENCY);
+            for (Term term : infixMatches) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                result.add(term.name);
+            }
+            return result;
+        }
+
+        // 取查询各 n-gram 倒排表的交集（从最短的表开始），结果仍需用 contains 校验
+        private Set<Term> infixCandidates(String lower) {
+            List<Set<Term>> postings = new ArrayList<>();
+            for (String gram : queryGrams(lower)) {
+                Set<Term> posting = gramPostings.get(gram);
+                if (posting == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(posting);
+            }
+            if (postings.isEmpty()) {
+                return Collections.emptySet();
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            Set<Term> candidates = new HashSet<>(postings.get(0));
+            for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(postings.get(i));
+            }
+            return candidates;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<NoteTagType, TypeIndex> indexes = new EnumMap<>(NoteTagType.class);
+    private final Map<String, List<TagKey>> tagsByNoteId = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild(List<NoteIndexSource.NoteFacets> rows) {
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            indexes.clear();
+            tagsByNoteId.clear();
+            for (NoteTagType type : NoteTagType.values()) {
+                indexes.put(type, new TypeIndex());
+            }
+            for (NoteIndexSource.NoteFacets row : rows) {
+                addLocked(row.id(), toTagKeys(row));
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Tag suggestion index built: {} notes in {} ms", rows.size(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void onNoteChanged(String noteId, NoteIndexSource.NoteFacets note) {
+        if (!ready) {
+            return;
+        }
+        List<TagKey> tags = note != null ? toTagKeys(note) : Collections.emptyList();
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(noteId);
+            addLocked(noteId, tags);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> suggest(NoteTagType type, String keyword, int limit) {
+        if (keyword == null || keyword.isBlank()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            TypeIndex index = indexes.get(type);
+            return index == null ? Collections.emptyList() : index.suggest(keyword.trim(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(String noteId, List<TagKey> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        tagsByNoteId.put(noteId, tags);
+        for (TagKey tag : tags) {
+            indexes.get(tag.type()).increment(tag.name());
+        }
+    }
+
+    private void removeLocked(String noteId) {
+        List<TagKey> previous = tagsByNoteId.remove(noteId);
+        if (previous != null) {
+            for (TagKey tag : previous) {
+                indexes.get(tag.type()).decrement(tag.name());
+            }
+        }
+    }
+
+    private static List<TagKey> toTagKeys(NoteIndexSource.NoteFacets note) {
+        // 同一笔记内大小写不同的同名标签只计一次
+        Map<String, TagKey> tags = new HashMap<>();
+        for (String entity : note.entities()) {
+            tags.putIfAbsent(NoteTagType.ENTITY + ":" + entity.toLowerCase(Locale.ROOT),
+                    new TagKey(NoteTagType.ENTITY, entity));
+        }
+        if (NoteIndexSource.isPresent(note.domain())) {
+            tags.put(NoteTagType.DOMAIN + ":", new TagKey(NoteTagType.DOMAIN, note.domain()));
+        }
+        if (NoteIndexSource.isPresent(note.contentType())) {
+            tags.put(NoteTagType.CONTENT_TYPE + ":", new TagKey(NoteTagType.CONTENT_TYPE, note.contentType()));
+        }
+        return List.copyOf(tags.values());
+    }
+
+    // 建索引：名称的全部单字与相邻二元组
+    private static Set<String> grams(String lower) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i < lower.length(); i++) {
+            grams.add(lower.substring(i, i + 1));
+            if (i + 1 < lower.length()) {
+                grams.add(lower.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    // 查询：单字查询直接查单字表，否则用相邻二元组
+    private static Set<String> queryGrams(String lower) {
+        if (lower.length() == 1) {
+            return Set.of(lower);
+        }
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 1 < lower.length(); i++) {
+            grams.add(lower.substring(i, i + 2));
+        }
+        return grams;
+    }
+}
@@ -6,6 +6,7 @@ import com.ainote.common.PageData;
 import com.ainote.dto.ChatResponseDTO;
 import com.ainote.dto.DrilledPropositionDTO;
 import com.ainote.dto.GraphDataDTO;
+import com.ainote.dto.GraphDeltaDTO;
 import com.ainote.dto.NoteAnalysisResult;
 import com.ainote.dto.NoteHistoryDTO;
 import com.ainote.dto.NoteRequestDTO;
@@ -13,19 +14,41 @@ import com.ainote.dto.NoteResponseDTO;
 import com.ainote.dto.NoteSummaryDTO;
 import com.ainote.dto.PolishRequestDTO;
 import com.ainote.dto.PropositionDTO;
+import com.ainote.dto.RevisionDiffDTO;
 import com.ainote.dto.SearchResultDTO;
 import com.ainote.dto.TagStatDTO;
 import com.ainote.entity.Note;
 import com.ainote.entity.NoteChunk;
 import com.ainote.enums.ChunkType;
+import com.ainote.enums.NoteChangeType;
 import com.ainote.enums.NoteStatus;
+import com.ainote.enums.NoteTagType;
+import com.ainote.event.NoteChangedEvent;
 import com.ainote.event.NoteIngestEvent;
 import com.ainote.repository.NoteChunkRepository;
 import com.ainote.repository.NoteRepository;
+import com.ainote.repository.RelatedNoteRepository;
+import com.ainote.service.AnswerCache;
+import com.ainote.service.ContextPacker;
+import com.ainote.service.EntityCooccurrenceGraph;
+import com.ainote.service.EntityIndexService;
+import com.ainote.service.EntityWikiStore;
+import com.ainote.service.GraphClusterService;
+import com.ainote.service.KnowledgeGraphModel;
+import com.ainote.service.NoteArtifactArchive;
+import com.ainote.service.NoteProgressStore;
+import com.ainote.service.NoteRevisionStore;
 import com.ainote.service.NoteService;
 import com.ainote.service.PropositionExtractionService;
+import com.ainote.service.RequestCoalescer;
+import com.ainote.service.SearchCursorStore;
+import com.ainote.service.SessionRetrievalCache;
+import com.ainote.service.TagSuggestionIndex;
+import com.ainote.util.LineDelta;
 import com.ainote.util.MarkdownAstSplitter;
 import com.ainote.util.MarkdownSplitter;
+import com.ainote.util.QueryHighlighter;
+import com.ainote.util.WikiSections;
 import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatOptions;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -35,32 +58,34 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.envers.AuditReader;
 import org.hibernate.envers.AuditReaderFactory;
-import org.hibernate.envers.DefaultRevisionEntity;
 import org.hibernate.envers.RevisionType;
 import org.hibernate.envers.query.AuditEntity;
+import org.hibernate.envers.query.AuditQuery;
 import org.springframework.ai.chat.memory.ChatMemory;
-import org.springframework.ai.chat.memory.InMemoryChatMemory;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.model.Media;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.DigestUtils;
 import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.client.RestClient;
@@ -68,6 +93,8 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -78,10 +105,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -91,7 +121,6 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -109,6 +138,24 @@ public class NoteServiceImpl implements NoteService {
     private final ObjectMapper mapper;
     private final NoteChunkRepository noteChunkRepository;
     private final PropositionExtractionService propositionExtractionService;
+    private final RequestCoalescer requestCoalescer;
+    private final RelatedNoteRepository relatedNoteRepository;
+    private final EntityIndexService entityIndexService;
+    private final SearchCursorStore searchCursorStore;
+    private final ChatMemory chatMemory;
+    private final ContextPacker contextPacker;
+    private final AnswerCache answerCache;
+    private final SessionRetrievalCache sessionRetrievalCache;
+    private final EmbeddingModel embeddingModel;
+    private final EntityWikiStore entityWikiStore;
+    private final TagSuggestionIndex tagSuggestionIndex;
+    private final KnowledgeGraphModel knowledgeGraphModel;
+    private final GraphClusterService graphClusterService;
+    private final EntityCooccurrenceGraph entityCooccurrenceGraph;
+    private final NoteRevisionStore noteRevisionStore;
+    private final NoteProgressStore noteProgressStore;
+    private final NoteArtifactArchive noteArtifactArchive;
+    private final TransactionTemplate transactionTemplate;
 
     // SSE 注册表（NoteId → Emitter）
     private final ConcurrentHashMap<String, SseEmitter> sseEmitters = new ConcurrentHashMap<>();
@@ -119,6 +166,59 @@ public class NoteServiceImpl implements NoteService {
     @Value("${spring.ai.dashscope.api-key}")
     private String dashscopeApiKey;
 
+    @Value("${ainote.rerank.url:https://dashscope.aliyuncs.com/api/v1/services/rerank/text-rerank/text-rerank}")
+    private String rerankUrl;
+
+    @Value("${ainote.rerank.throttle-ms:1000}")
+    private long rerankThrottleMillis;
+
+    // 检索规模配置：每页条数、Rerank 候选预算及各内部检索场景的候选数
+    @Value("${ainote.search.default-top-k:10}")
+    private int defaultSearchTopK;
+
+    @Value("${ainote.search.max-top-k:50}")
+    private int maxSearchTopK;
+
+    @Value("${ainote.search.default-candidates:20}")
+    private int defaultSearchCandidates;
+
+    @Value("${ainote.search.max-candidates:100}")
+    private int maxSearchCandidates;
+
+    @Value("${ainote.search.context-candidates:20}")
+    private int contextCandidates;
+
+    @Value("${ainote.search.merge-candidates:20}")
+    private int mergeCandidates;
+
+    @Value("${ainote.search.drill-down-candidates:50}")
+    private int drillDownCandidates;
+
+    // 问答提示词中检索上下文与历史消息各自的 token 预算
+    @Value("${ainote.chat.context-token-budget:2000}")
+    private int contextTokenBudget;
+
+    @Value("${ainote.chat.history-token-budget:1000}")
+    private int historyTokenBudget;
+
+    // 变化来源（新增 + 变更 + 移除）占比不超过该值时增量修订百科，否则整篇重新合成
+    @Value("${ainote.wiki.incremental-max-change-ratio:0.5}")
+    private double wikiIncrementalMaxChangeRatio;
+
+    // 单次图谱响应（簇视图 / 节点展开）的节点数上限
+    @Value("${ainote.graph.max-nodes-per-response:200}")
+    private int maxGraphNodes;
+
+    // 展开实体节点时附带的共现实体数上限（按 NPMI 排序）
+    @Value("${ainote.graph.cooccurrence.top-k:20}")
+    private int cooccurrenceTopK;
+
+    @Value("${ainote.history.default-page-size:20}")
+    private int defaultHistoryPageSize;
+
+    @Value("${ainote.history.max-page-size:100}")
+    private int maxHistoryPageSize;
+
     @Override
     public NoteResponseDTO generateSummary(NoteRequestDTO noteRequest) {
         String systemInstruction = """
@@ -182,7 +282,7 @@ public class NoteServiceImpl implements NoteService {
         note.setContent(noteRequest.getContent()); // 先保存原始内容
         note.setStatus(NoteStatus.PROCESSING);
 
-        noteRepository.save(note);
+        noteRevisionStore.saveWithRevision(note);
         log.info("Saved initial note (PROCESSING): {}", note.getId());
 
         // 2. 发布事件触发异步处理
@@ -192,13 +292,8 @@ public class NoteServiceImpl implements NoteService {
 
     @Override
     public void updateNoteProgress(String noteId, NoteStatus status, String message) {
-        Optional<Note> noteOpt = noteRepository.findById(noteId);
-        if (noteOpt.isPresent()) {
-            Note n = noteOpt.get();
-            n.setStatus(status);
-            n.setStatusMessage(message);
-            noteRepository.save(n);
-        }
+        // 进度写入独立的轻量存储（合并落库），不再逐条保存被审计的 Note 实体
+        noteProgressStore.update(noteId, status, message);
 
         // 如果有已订阅的客户端，直接推送状态更新
         SseEmitter emitter = sseEmitters.get(noteId);
@@ -244,14 +339,15 @@ public class NoteServiceImpl implements NoteService {
         // 立即推送当前状态，防止前端因笔记已在处理中或已完成而错过通知
         Optional<Note> noteOpt = noteRepository.findById(noteId);
         if (noteOpt.isPresent()) {
-            Note n = noteOpt.get();
+            Map<String, String> current = statusOf(noteOpt.get());
             try {
                 emitter.send(SseEmitter.event()
                         .name("statusUpdate")
                         .data(Map.of(
-                                "status", n.getStatus() != null ? n.getStatus().name() : "PROCESSING",
+                                "status", current.get("status"),
                                 "message",
-                                n.getStatusMessage() != null ? n.getStatusMessage() : "SSE stream established")));
+                                !current.get("message").isEmpty() ? current.get("message")
+                                        : "SSE stream established")));
             } catch (Exception e) {
                 emitter.completeWithError(e);
                 sseEmitters.remove(noteId);
@@ -260,6 +356,24 @@ public class NoteServiceImpl implements NoteService {
         return emitter;
     }
 
+    @Override
+    public Map<String, String> getNoteStatus(String noteId) {
+        return statusOf(getNote(noteId));
+    }
+
+    // 状态以 Note.status 为准，提示信息取自进度存储中同一状态的最新进度；
+    // 笔记已离开处理流程（如 OUTDATED、MERGED）时仍展示最后一次处理结果（完成 / 失败）的提示
+    private Map<String, String> statusOf(Note note) {
+        NoteStatus status = note.getStatus() != null ? note.getStatus() : NoteStatus.PROCESSING;
+        boolean settled = status != NoteStatus.PROCESSING && !NoteProgressStore.isTerminal(status);
+        String message = noteProgressStore.get(note.getId())
+                .filter(progress -> progress.status() == status
+                        || (settled && NoteProgressStore.isTerminal(progress.status())))
+                .map(NoteProgressStore.Progress::message)
+                .orElse(null);
+        return Map.of("status", status.name(), "message", message != null ? message : "");
+    }
+
     @Override
     public void processNoteAsync(String noteId, NoteRequestDTO noteRequest) {
         Optional<Note> noteOpt = noteRepository.findById(noteId);
@@ -416,12 +530,14 @@ public class NoteServiceImpl implements NoteService {
                 freshNote.setAiMetadata(note.getAiMetadata()); // 使用之前设置在旧 Note 对象上的分析结果
                 freshNote.setContent(restoredContent);
                 freshNote.setSummary(finalSummary);
+                freshNote.setStatus(NoteStatus.COMPLETED); // 终态随正文一并落库，只产生一次修订
 
-                noteRepository.save(freshNote); // 此时保存绝对不会报版本号错误！
+                noteRevisionStore.saveWithRevision(freshNote); // 此时保存绝对不会报版本号错误！
             }
 
             // 🔥 在这里才真正发送 COMPLETED 事件，关闭 SSE。
             updateNoteProgress(noteId, NoteStatus.COMPLETED, "处理完美结束，已入库并建立关联。");
+            eventPublisher.publishEvent(new NoteChangedEvent(this, noteId, NoteChangeType.ANALYZED));
 
             log.info("✅ 笔记 [{}] 所有异步处理流程全部圆满结束！", noteId);
 
@@ -429,13 +545,17 @@ public class NoteServiceImpl implements NoteService {
             log.error("❌ 异步处理发生致命异常，NoteId: {}", noteId, e);
 
             // 重新加载最新版本的笔记，避免乐观锁冲突
+            noteRepository.findById(noteId).ifPresent(failedNote -> {
+                failedNote.setStatus(NoteStatus.FAILED);
+                noteRepository.save(failedNote);
+            });
             updateNoteProgress(noteId, NoteStatus.FAILED, "生成过程遇到错误中断：" + e.getMessage());
         }
     }
 
     private String findTopSimilarNotes(String query, String currentNoteId) {
         List<Document> initialResults = vectorStore.similaritySearch(
-                SearchRequest.query(query).withTopK(20));
+                SearchRequest.query(query).withTopK(mergeCandidates));
 
         List<Document> activeCandidates = new ArrayList<>();
         List<String> ghostsToRemove = new ArrayList<>();
@@ -528,8 +648,10 @@ public class NoteServiceImpl implements NoteService {
 
     private List<RerankResult> performRerank(String query, List<Document> documents) {
         try {
-            // API 限流：等待 1 秒以避免 429 Too Many Requests 错误
-            Thread.sleep(1000);
+            // API 限流：等待一段时间以避免 429 Too Many Requests 错误
+            if (rerankThrottleMillis > 0) {
+                Thread.sleep(rerankThrottleMillis);
+            }
 
             List<String> docContents = documents.stream()
                     .map(Document::getContent)
@@ -545,7 +667,7 @@ public class NoteServiceImpl implements NoteService {
 
             RestClient restClient = restClientBuilder.build();
             String responseBody = restClient.post()
-                    .uri("https://dashscope.aliyuncs.com/api/v1/services/rerank/text-rerank/text-rerank")
+                    .uri(rerankUrl)
                     .header("Authorization", "Bearer " + dashscopeApiKey)
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(requestBody)
@@ -583,7 +705,12 @@ public class NoteServiceImpl implements NoteService {
             NoteAnalysisResult analysisResult) {
         log.debug("Starting vectorizeContent for Note: {}", noteId);
         try {
-            // 0. 关键步骤：在重新插入前物理删除旧的幽灵向量
+            // 0. 关键步骤：在重新插入前物理删除旧的幽灵向量（删除前按正文版本归档，供回滚直接复用）
+            try {
+                noteArtifactArchive.archiveCurrent(noteId);
+            } catch (Exception e) {
+                log.warn("Failed to archive chunks/vectors of Note {} before purge: {}", noteId, e.getMessage());
+            }
             try {
                 noteRepository.deleteVectorsByNoteId(noteId);
                 log.debug("Purged old vector embeddings for Note ID: {} to prevent Semantic Search ghosts.", noteId);
@@ -617,6 +744,7 @@ public class NoteServiceImpl implements NoteService {
             Map<String, Object> baseMetadata = new HashMap<>();
             baseMetadata.put("title", title != null ? title : "");
             baseMetadata.put("note_id", noteId);
+            baseMetadata.put("content_hash", contentHash(restoredContent));
 
             if (analysisResult != null) {
                 if (analysisResult.primaryDomain() != null)
@@ -680,13 +808,87 @@ public class NoteServiceImpl implements NoteService {
         }
     }
 
+    // 向量产物对应的正文版本标识，回滚时据此查找归档
+    private static String contentHash(String content) {
+        return DigestUtils.md5DigestAsHex((content != null ? content : "").getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
     public List<SearchResultDTO> semanticSearch(String query, double threshold) {
+        return new ArrayList<>(rankedSearch(query, threshold, defaultSearchCandidates));
+    }
+
+    @Override
+    public PageData<SearchResultDTO> searchPage(String query, double threshold, Integer topK, Integer candidates,
+            String cursor) {
+        int pageSize = clamp(topK, defaultSearchTopK, maxSearchTopK);
+        if (cursor != null && !cursor.isBlank()) {
+            // 翻页：直接读取服务端暂存的排序结果，不再检索
+            return searchCursorStore.nextPage(cursor, pageSize);
+        }
+        int candidateBudget = Math.max(clamp(candidates, defaultSearchCandidates, maxSearchCandidates), pageSize);
+        return searchCursorStore.firstPage(rankedSearch(query, threshold, candidateBudget), pageSize);
+    }
+
+    /**
+     * 向量检索 candidateBudget 个切片并 Rerank，返回超过阈值的完整排序结果（共享对象，调用方不得修改）。
+     */
+    private List<SearchResultDTO> rankedSearch(String query, double threshold, int candidateBudget) {
+        // 相同查询的并发请求共享一次向量检索 + Rerank
+        return requestCoalescer.execute("search", query + "|" + threshold + "|" + candidateBudget, () -> {
+            ActiveCandidates candidates = retrieveActiveCandidates(query, candidateBudget);
+            if (candidates.docs().isEmpty()) {
+                return Collections.<SearchResultDTO>emptyList();
+            }
+            return executeRerankLogic(query, candidates.docs(), candidates.noteMap(), threshold);
+        });
+    }
+
+    private static int clamp(Integer requested, int defaultValue, int max) {
+        if (requested == null || requested <= 0) {
+            return defaultValue;
+        }
+        return Math.min(requested, max);
+    }
+
+    @Override
+    public Flux<ServerSentEvent<List<SearchResultDTO>>> streamSemanticSearch(String query, double threshold) {
+        // 阶段 1：向量检索 + 存活校验完成后立即推送临时结果；阶段 2：Rerank 完成后推送重排后的最终顺序
+        return Mono.fromCallable(() -> retrieveActiveCandidates(query, defaultSearchCandidates))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(candidates -> {
+                    if (candidates.docs().isEmpty()) {
+                        return Flux.just(searchEvent("reranked", Collections.emptyList()));
+                    }
+                    Mono<ServerSentEvent<List<SearchResultDTO>>> provisional = Mono.fromCallable(
+                            () -> searchEvent("provisional", buildProvisionalResults(query, candidates)));
+                    Mono<ServerSentEvent<List<SearchResultDTO>>> reranked = Mono.fromCallable(
+                            () -> searchEvent("reranked",
+                                    executeRerankLogic(query, candidates.docs(), candidates.noteMap(), threshold)))
+                            .subscribeOn(Schedulers.boundedElastic());
+                    return Flux.concat(provisional, reranked);
+                });
+    }
+
+    private static ServerSentEvent<List<SearchResultDTO>> searchEvent(String name, List<SearchResultDTO> results) {
+        return ServerSentEvent.<List<SearchResultDTO>>builder()
+                .event(name)
+                .data(results)
+                .build();
+    }
+
+    /**
+     * 向量检索阶段的结果：已过滤已删除笔记的候选切片，以及对应的活跃笔记映射。
+     */
+    private record ActiveCandidates(List<Document> docs, Map<String, Note> noteMap) {
+    }
+
+    private ActiveCandidates retrieveActiveCandidates(String query, int candidateBudget) {
         List<Document> initialResults = vectorStore.similaritySearch(
-                SearchRequest.query(query).withTopK(20));
+                SearchRequest.query(query).withTopK(candidateBudget));
 
         if (initialResults.isEmpty()) {
-            return Collections.emptyList();
+            return new ActiveCandidates(Collections.emptyList(), Collections.emptyMap());
         }
 
         // 批量加载活跃笔记以避免 N+1 查询
@@ -704,30 +906,44 @@ public class NoteServiceImpl implements NoteService {
                 activeResults.add(doc);
             }
         }
+        return new ActiveCandidates(activeResults, activeNoteMap);
+    }
 
-        if (activeResults.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * 基于向量检索顺序生成临时结果（每篇笔记取最相近的切片），分数取向量相似度（1 - 余弦距离）。
+     */
+    private List<SearchResultDTO> buildProvisionalResults(String query, ActiveCandidates candidates) {
+        List<SearchResultDTO> results = new ArrayList<>();
+        Set<String> addedNoteIds = new HashSet<>();
+        QueryHighlighter highlighter = QueryHighlighter.compile(query);
+        for (Document doc : candidates.docs()) {
+            String cleanId = cleanNoteId(doc.getMetadata().get("note_id"));
+            if (cleanId == null || !addedNoteIds.add(cleanId)) {
+                continue;
+            }
+            Note note = candidates.noteMap().get(cleanId);
+            SearchResultDTO dto = new SearchResultDTO();
+            dto.setId(note.getId());
+            dto.setTitle(note.getTitle());
+            dto.setSimilarityScore(doc.getMetadata().get("distance") instanceof Number distance
+                    ? 1.0 - distance.doubleValue()
+                    : 0.0);
+            dto.setHighlightContext(highlighter.highlight(doc.getContent()));
+            results.add(dto);
         }
-
-        return executeRerankLogic(query, activeResults, threshold);
+        return results;
     }
 
     private List<SearchResultDTO> executeRerankLogic(String query,
             List<Document> initialResults,
+            Map<String, Note> noteMap,
             double threshold) {
 
-        // 批量加载所有引用的笔记以避免 N+1 查询
-        Set<String> candidateIds = new HashSet<>();
-        for (Document doc : initialResults) {
-            String cleanId = cleanNoteId(doc.getMetadata().get("note_id"));
-            if (cleanId != null) candidateIds.add(cleanId);
-        }
-        Map<String, Note> noteMap = loadActiveNotesById(candidateIds);
-
         List<SearchResultDTO> bestResults = new ArrayList<>();
         Set<String> addedNoteIds = new HashSet<>();
 
         List<RerankResult> rerankResults = performRerank(query, initialResults);
+        QueryHighlighter highlighter = QueryHighlighter.compile(query);
 
         if (rerankResults == null) {
             // 优雅降级：Rerank 不可用，回退到原始向量搜索结果
@@ -741,7 +957,7 @@ public class NoteServiceImpl implements NoteService {
                         dto.setId(note.getId());
                         dto.setTitle(note.getTitle());
                         dto.setSimilarityScore(0.0);
-                        dto.setHighlightContext(highlightSnippet(doc.getContent(), query));
+                        dto.setHighlightContext(highlighter.highlight(doc.getContent()));
                         bestResults.add(dto);
                         addedNoteIds.add(cleanId);
                     }
@@ -762,7 +978,7 @@ public class NoteServiceImpl implements NoteService {
                         dto.setId(note.getId());
                         dto.setTitle(note.getTitle());
                         dto.setSimilarityScore(rr.score());
-                        dto.setHighlightContext(highlightSnippet(bestDoc.getContent(), query));
+                        dto.setHighlightContext(highlighter.highlight(bestDoc.getContent()));
                         bestResults.add(dto);
                         addedNoteIds.add(cleanId);
                     }
@@ -772,40 +988,29 @@ public class NoteServiceImpl implements NoteService {
         return bestResults;
     }
 
-    private String highlightSnippet(String text, String query) {
-        if (text == null || query == null || query.isBlank()) {
-            return text != null ? text.substring(0, Math.min(text.length(), 150)) + "..." : "";
-        }
-
-        // 粗略匹配查询词位置（忽略大小写），用于截取摘要片段
-        String lowerText = text.toLowerCase();
-        String lowerQuery = query.toLowerCase();
-        int matchIdx = lowerText.indexOf(lowerQuery);
-
-        // 确定截取窗口（约 150 字符）
-        int sliceStart = 0;
-        int sliceEnd = Math.min(text.length(), 150);
-
-        if (matchIdx != -1) {
-            sliceStart = Math.max(0, matchIdx - 50);
-            sliceEnd = Math.min(text.length(), matchIdx + query.length() + 100);
+    @Override
+    public String generateEntityWiki(String entityName, boolean force) {
+        if (!force) {
+            Optional<String> stored = entityWikiStore.get(entityName);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
         }
+        // 未命中或过期时，并发请求合并为一次检索 + LLM 合成，结果连同来源版本持久化
+        return requestCoalescer.execute("wiki", entityName, () -> {
+            GeneratedWiki wiki = doGenerateEntityWiki(entityName);
+            if (!wiki.sources().isEmpty()) {
+                entityWikiStore.save(entityName, wiki.content(), wiki.sources());
+            }
+            return wiki.content();
+        });
+    }
 
-        String snippet = text.substring(sliceStart, sliceEnd);
-        if (sliceStart > 0)
-            snippet = "..." + snippet;
-        if (sliceEnd < text.length())
-            snippet = snippet + "...";
-
-        // 使用正则进行大小写不敏感的高亮标记
-        String regex = "(?i)(" + Pattern.quote(query) + ")";
-        return snippet.replaceAll(regex, "<em>$1</em>");
+    private record GeneratedWiki(String content, List<EntityWikiStore.WikiSource> sources) {
     }
 
-    @Override
-    @Cacheable(value = "entityWiki", key = "#entityName", condition = "#force == false")
-    public String generateEntityWiki(String entityName, boolean force) {
-        log.debug("Generating Entity Wiki for: {} (Cache Miss)", entityName);
+    private GeneratedWiki doGenerateEntityWiki(String entityName) {
+        log.debug("Generating Entity Wiki for: {}", entityName);
         // 1. 宽范围向量检索
         SearchRequest searchRequest = SearchRequest
                 .query(entityName).withTopK(40).withSimilarityThreshold(0.75);
@@ -813,11 +1018,11 @@ public class NoteServiceImpl implements NoteService {
         List<Document> rawDocs = vectorStore.similaritySearch(searchRequest);
 
         if (rawDocs == null || rawDocs.isEmpty()) {
-            return "关于【" + entityName + "】在您的知识库中尚未发现足够的关联碎片。";
+            return new GeneratedWiki("关于【" + entityName + "】在您的知识库中尚未发现足够的关联碎片。", List.of());
         }
 
         // 2. 多样性分组（每个 note_id 最多 5 个 chunk），过滤已删除笔记
-        Map<String, List<Document>> groupedByNoteId = new HashMap<>();
+        Map<String, List<Document>> groupedByNoteId = new LinkedHashMap<>();
         for (Document doc : rawDocs) {
             Object rawId = doc.getMetadata().get("note_id");
             if (rawId != null) {
@@ -837,22 +1042,53 @@ public class NoteServiceImpl implements NoteService {
         Set<String> activeIds = sourceNotes.stream().map(Note::getId).collect(Collectors.toSet());
         groupedByNoteId.keySet().retainAll(activeIds);
         if (groupedByNoteId.isEmpty()) {
-            return "关于【" + entityName + "】在您的知识库中尚未发现足够的关联碎片。";
+            return new GeneratedWiki("关于【" + entityName + "】在您的知识库中尚未发现足够的关联碎片。", List.of());
         }
         Map<String, String> idToTitleMap = sourceNotes.stream()
                 .collect(Collectors.toMap(Note::getId, Note::getTitle));
-
-        StringBuilder contextBuilder = new StringBuilder();
-        for (Map.Entry<String, List<Document>> entry : groupedByNoteId
-                .entrySet()) {
-            String title = idToTitleMap.getOrDefault(entry.getKey(), "未知来源");
-            for (Document chunk : entry.getValue()) {
-                contextBuilder.append("来源笔记：【").append(title).append("】\n");
-                contextBuilder.append("内容片段：").append(chunk.getContent()).append("\n---\n");
+        Map<String, Long> idToVersionMap = sourceNotes.stream()
+                .collect(Collectors.toMap(Note::getId, Note::getVersion));
+        List<EntityWikiStore.WikiSource> sources = groupedByNoteId.entrySet().stream()
+                .map(e -> new EntityWikiStore.WikiSource(e.getKey(), idToVersionMap.get(e.getKey()),
+                        idToTitleMap.get(e.getKey()), wikiFragmentHash(e.getValue())))
+                .toList();
+
+        // 4. 与上一版百科的来源碎片比对：无实质变化直接复用，少量变化只修订受影响的小节
+        Optional<EntityWikiStore.StoredWiki> previous = entityWikiStore.findPrevious(entityName);
+        if (previous.isPresent() && !previous.get().sources().isEmpty()) {
+            Map<String, EntityWikiStore.WikiSource> previousSources = previous.get().sources().stream()
+                    .collect(Collectors.toMap(EntityWikiStore.WikiSource::noteId, src -> src));
+            Map<String, List<Document>> changedGroups = new LinkedHashMap<>();
+            for (EntityWikiStore.WikiSource src : sources) {
+                EntityWikiStore.WikiSource before = previousSources.get(src.noteId());
+                if (before == null || !Objects.equals(before.fragmentHash(), src.fragmentHash())) {
+                    changedGroups.put(src.noteId(), groupedByNoteId.get(src.noteId()));
+                }
+            }
+            List<String> removedTitles = previous.get().sources().stream()
+                    .filter(src -> !groupedByNoteId.containsKey(src.noteId()))
+                    .map(src -> src.title() != null ? src.title() : "未知来源")
+                    .toList();
+
+            if (changedGroups.isEmpty() && removedTitles.isEmpty()) {
+                log.debug("Source fragments of wiki [{}] unchanged, skipping regeneration.", entityName);
+                return new GeneratedWiki(previous.get().content(), sources);
+            }
+            int changedCount = changedGroups.size() + removedTitles.size();
+            if (changedCount <= Math.max(1, sources.size() * wikiIncrementalMaxChangeRatio)) {
+                String revised = reviseEntityWiki(entityName, previous.get().content(),
+                        buildWikiContext(changedGroups, idToTitleMap), removedTitles);
+                if (revised != null) {
+                    log.debug("Incrementally revised wiki [{}]: {} changed, {} removed sources.", entityName,
+                            changedGroups.size(), removedTitles.size());
+                    return new GeneratedWiki(revised, sources);
+                }
             }
         }
 
-        // 4. 结构化 LLM 生成
+        String context = buildWikiContext(groupedByNoteId, idToTitleMap);
+
+        // 5. 结构化 LLM 生成
         String promptStr = """
                 你是一个顶级的知识重组专家。用户正在查询实体【%s】。请基于我提供的多篇笔记碎片，合成一篇极其详尽、专业的百科笔记。
                 必须包含以下结构：
@@ -892,8 +1128,72 @@ public class NoteServiceImpl implements NoteService {
                 %s
                 """;
 
-        String finalPrompt = promptStr.formatted(entityName, contextBuilder.toString());
-        return chatModel.call(finalPrompt);
+        String finalPrompt = promptStr.formatted(entityName, context);
+        return new GeneratedWiki(chatModel.call(finalPrompt), sources);
+    }
+
+    private String buildWikiContext(Map<String, List<Document>> groupedByNoteId, Map<String, String> idToTitleMap) {
+        StringBuilder contextBuilder = new StringBuilder();
+        for (Map.Entry<String, List<Document>> entry : groupedByNoteId.entrySet()) {
+            String title = idToTitleMap.getOrDefault(entry.getKey(), "未知来源");
+            for (Document chunk : entry.getValue()) {
+                contextBuilder.append("来源笔记：【").append(title).append("】\n");
+                contextBuilder.append("内容片段：").append(chunk.getContent()).append("\n---\n");
+            }
+        }
+        return contextBuilder.toString();
+    }
+
+    /**
+     * 同一笔记参与合成的碎片摘要，与检索顺序无关。
+     */
+    private static String wikiFragmentHash(List<Document> chunks) {
+        String joined = chunks.stream()
+                .map(doc -> doc.getContent() != null ? doc.getContent().strip() : "")
+                .sorted()
+                .collect(Collectors.joining("\n---\n"));
+        return DigestUtils.md5DigestAsHex(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 只让 LLM 输出需要改写的小节，再按标题拼回原百科；无法按小节解析时返回 null，由调用方整篇重新生成。
+     */
+    private String reviseEntityWiki(String entityName, String previousWiki, String changedContext,
+            List<String> removedTitles) {
+        WikiSections.ParsedWiki parsed = WikiSections.parse(previousWiki);
+        if (parsed.sections().isEmpty()) {
+            return null;
+        }
+
+        String promptStr = """
+                你是一个知识百科维护助手。以下是实体【%s】现有的百科正文，以及自上次生成以来发生变化的笔记碎片。
+                【核心规则】：
+                1. 只输出需要修改的小节：每个小节以现有百科中完全相同的 "### " 标题行开头，后接修改后的完整小节正文；未受影响的小节不要输出。
+                2. 引用【已移除来源】的论述必须删除，或改用其他来源支撑；新增或变更碎片中的信息补充到最相关的小节，并使用 [来源：xxx标题] 标注。
+                3. 保留小节中仍然成立的内容、代码块、公式与参数，绝不捏造资料。
+                4. 如果无需任何修改，只输出：无需修改
+
+                【现有百科】：
+                %s
+
+                【已移除来源】：
+                %s
+
+                【新增或变更的笔记碎片】：
+                %s
+                """;
+        String response = chatModel.call(promptStr.formatted(entityName, previousWiki,
+                removedTitles.isEmpty() ? "（无）" : String.join("、", removedTitles),
+                changedContext.isEmpty() ? "（无）" : changedContext));
+        if (response == null) {
+            return null;
+        }
+
+        List<WikiSections.Section> revisedSections = WikiSections.parse(response).sections();
+        if (revisedSections.isEmpty()) {
+            return response.contains("无需修改") ? previousWiki : null;
+        }
+        return WikiSections.splice(parsed, revisedSections);
     }
 
     @Override
@@ -927,6 +1227,14 @@ public class NoteServiceImpl implements NoteService {
             log.error("mergeNotes: Failed to delete old vectors for merged Source Note {}: {}", sourceId,
                     e.getMessage(), e);
         }
+        try {
+            noteProgressStore.remove(sourceId);
+        } catch (Exception e) {
+            log.warn("mergeNotes: Failed to remove progress of merged Source Note {}: {}", sourceId, e.getMessage());
+        }
+
+        eventPublisher.publishEvent(new NoteChangedEvent(this, sourceId, NoteChangeType.DELETED));
+        eventPublisher.publishEvent(new NoteChangedEvent(this, targetId, NoteChangeType.MERGED));
 
         return result;
     }
@@ -973,7 +1281,7 @@ public class NoteServiceImpl implements NoteService {
         } catch (Exception e) {
             log.error("Failed to update summary during merge: {}", e.getMessage(), e);
         }
-        noteRepository.save(existingNote);
+        noteRevisionStore.saveWithRevision(existingNote);
 
         // 3. 更新目标笔记的向量存储（合并场景使用简单切分作为回退方案）
         MarkdownSplitter.ProtectedContent mergeProtected = MarkdownSplitter
@@ -985,51 +1293,139 @@ public class NoteServiceImpl implements NoteService {
         return "Merged successfully. New content length: " + mergedContent.length();
     }
 
+    private static final int REVISION_DIFF_CONTEXT_LINES = 3;
+
     @Override
-    @SuppressWarnings("unchecked")
     public List<NoteHistoryDTO> getNoteHistory(String noteId) {
-        AuditReader reader = AuditReaderFactory.get(entityManager);
+        return queryNoteHistory(noteId, null, null);
+    }
+
+    @Override
+    public PageData<NoteHistoryDTO> getNoteHistoryPage(String noteId, String cursor, Integer size) {
+        Integer beforeRevision = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                beforeRevision = Integer.valueOf(cursor);
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ErrorCodeEnum.PARAM_ERROR, "Invalid history cursor: " + cursor);
+            }
+        }
+        int pageSize = clamp(size, defaultHistoryPageSize, maxHistoryPageSize);
 
-        List<Object[]> results = reader.createQuery()
+        // 多取一条用于判断是否还有下一页
+        List<NoteHistoryDTO> records = queryNoteHistory(noteId, beforeRevision, pageSize + 1);
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = new ArrayList<>(records.subList(0, pageSize));
+            nextCursor = String.valueOf(records.get(pageSize - 1).getRevisionId());
+        }
+        return PageData.ofCursor(records, countNoteRevisions(noteId), pageSize, nextCursor);
+    }
+
+    /**
+     * 历史列表只投影摘要列与修订元数据，不加载 content / ai_metadata 等大字段；按修订号倒序，
+     * beforeRevision 不为空时只取更早的修订（游标翻页）。
+     */
+    @SuppressWarnings("unchecked")
+    private List<NoteHistoryDTO> queryNoteHistory(String noteId, Integer beforeRevision, Integer limit) {
+        AuditReader reader = AuditReaderFactory.get(entityManager);
+        AuditQuery query = reader.createQuery()
                 .forRevisionsOfEntity(Note.class, false, true)
+                .addProjection(AuditEntity.revisionNumber())
+                .addProjection(AuditEntity.revisionProperty("timestamp"))
+                .addProjection(AuditEntity.revisionType())
+                .addProjection(AuditEntity.property("title"))
+                .addProjection(AuditEntity.property("summary"))
+                .addProjection(AuditEntity.property("status"))
                 .add(AuditEntity.id().eq(noteId))
-                .addOrder(AuditEntity.revisionNumber().desc())
-                .getResultList();
+                .addOrder(AuditEntity.revisionNumber().desc());
+        if (beforeRevision != null) {
+            query.add(AuditEntity.revisionNumber().lt(beforeRevision));
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
 
         List<NoteHistoryDTO> historyList = new ArrayList<>();
-        for (Object[] row : results) {
-            Note note = (Note) row[0];
-            DefaultRevisionEntity revisionEntity = (DefaultRevisionEntity) row[1];
-            RevisionType revisionType = (RevisionType) row[2];
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            NoteStatus status = (NoteStatus) row[5];
 
             NoteHistoryDTO dto = new NoteHistoryDTO();
-            dto.setRevisionId(revisionEntity.getId());
-            dto.setRevisionDate(revisionEntity.getRevisionDate());
-            dto.setRevisionType(revisionType.name());
-            dto.setTitle(note.getTitle());
-            dto.setSummary(note.getSummary());
-            dto.setStatus(note.getStatus() != null ? note.getStatus().name() : "UNKNOWN");
+            dto.setRevisionId((Number) row[0]);
+            dto.setRevisionDate(new Date(((Number) row[1]).longValue()));
+            dto.setRevisionType(((RevisionType) row[2]).name());
+            dto.setTitle((String) row[3]);
+            dto.setSummary((String) row[4]);
+            dto.setStatus(status != null ? status.name() : "UNKNOWN");
 
             historyList.add(dto);
         }
         return historyList;
     }
 
+    private long countNoteRevisions(String noteId) {
+        AuditReader reader = AuditReaderFactory.get(entityManager);
+        Number count = (Number) reader.createQuery()
+                .forRevisionsOfEntity(Note.class, false, true)
+                .addProjection(AuditEntity.revisionNumber().count())
+                .add(AuditEntity.id().eq(noteId))
+                .getSingleResult();
+        return count != null ? count.longValue() : 0L;
+    }
+
     @Override
     public Note getNoteRevision(String noteId, Number revision) {
         AuditReader reader = AuditReaderFactory.get(entityManager);
-        return reader.find(Note.class, noteId, revision);
+        Note note = reader.find(Note.class, noteId, revision);
+        // 审计表不含正文与元数据，按该修订的版本号从历史版本存储回放
+        if (note != null) {
+            noteRevisionStore.contentAt(noteId, note.getVersion(), revision).ifPresent(stored -> {
+                note.setContent(stored.content());
+                note.setAiMetadata(stored.aiMetadata());
+            });
+        }
+        return note;
+    }
+
+    @Override
+    public RevisionDiffDTO diffNoteRevisions(String noteId, Number fromRevision, Number toRevision) {
+        Note from = getNoteRevision(noteId, fromRevision);
+        Note to = getNoteRevision(noteId, toRevision);
+        if (from == null || to == null) {
+            throw new BusinessException(ErrorCodeEnum.NOTE_NOT_FOUND,
+                    "Revision not found: " + (from == null ? fromRevision : toRevision));
+        }
+        if (from.getContent() == null || to.getContent() == null) {
+            throw new BusinessException(ErrorCodeEnum.NOTE_NOT_FOUND,
+                    "Revision content unavailable: " + (from.getContent() == null ? fromRevision : toRevision));
+        }
+
+        int added = 0;
+        int removed = 0;
+        for (LineDelta.Run run : LineDelta.diff(LineDelta.lines(from.getContent()),
+                LineDelta.lines(to.getContent()))) {
+            if (run.op() == LineDelta.Op.INSERT) {
+                added += run.count();
+            } else if (run.op() == LineDelta.Op.DELETE) {
+                removed += run.count();
+            }
+        }
+        return new RevisionDiffDTO(fromRevision, toRevision, from.getTitle(), to.getTitle(), added, removed,
+                LineDelta.unifiedDiff(from.getContent(), to.getContent(), REVISION_DIFF_CONTEXT_LINES));
     }
 
     @Override
     @Transactional
     public void rollbackNote(String noteId, Number revision) {
-        AuditReader reader = AuditReaderFactory.get(entityManager);
-        Note historicalNote = reader.find(Note.class, noteId, revision);
+        Note historicalNote = getNoteRevision(noteId, revision);
 
         if (historicalNote == null) {
             throw new RuntimeException("Revision not found: " + revision);
         }
+        // 无法还原正文的修订不能回滚，否则会把 null 写回笔记
+        if (historicalNote.getContent() == null) {
+            throw new BusinessException(ErrorCodeEnum.NOTE_NOT_FOUND, "Revision content unavailable: " + revision);
+        }
 
         Optional<Note> currentNoteOpt = noteRepository.findById(noteId);
         if (currentNoteOpt.isEmpty()) {
@@ -1043,18 +1439,23 @@ public class NoteServiceImpl implements NoteService {
         currentNote.setStatus(historicalNote.getStatus());
         currentNote.setDeleted(false); // 回滚时确保笔记为活跃状态
 
-        noteRepository.save(currentNote);
+        noteRevisionStore.saveWithRevision(currentNote);
 
-        // 向量清理已在 vectorizeContent 内部自动处理
-        // 用历史版本的内容重新生成向量
-        MarkdownSplitter.ProtectedContent rollbackProtected = MarkdownSplitter
-                .extractAndProtect(currentNote.getContent());
-        vectorizeContent(rollbackProtected.textWithPlaceholders, rollbackProtected.replacements, currentNote.getId(),
-                currentNote.getTitle(),
-                currentNote.getAiMetadata());
-    }
+        // 该版本正文的分块、命题与向量仍在归档中时直接恢复，不再重新切分和调用 LLM
+        if (noteArtifactArchive.restore(noteId, contentHash(currentNote.getContent()), currentNote.getTitle(),
+                currentNote.getAiMetadata())) {
+            log.info("Rolled back Note {} to revision {} with archived chunks and embeddings.", noteId, revision);
+        } else {
+            // 向量清理已在 vectorizeContent 内部自动处理
+            // 用历史版本的内容重新生成向量
+            MarkdownSplitter.ProtectedContent rollbackProtected = MarkdownSplitter
+                    .extractAndProtect(currentNote.getContent());
+            vectorizeContent(rollbackProtected.textWithPlaceholders, rollbackProtected.replacements,
+                    currentNote.getId(), currentNote.getTitle(), currentNote.getAiMetadata());
+        }
 
-    private final ChatMemory chatMemory = new InMemoryChatMemory();
+        eventPublisher.publishEvent(new NoteChangedEvent(this, noteId, NoteChangeType.ROLLED_BACK));
+    }
 
     @Override
     public String chatWithNotes(String query) {
@@ -1064,14 +1465,116 @@ public class NoteServiceImpl implements NoteService {
     @Override
     public ChatResponseDTO chatWithNotes(String query, String filterDomain, String filterType,
             String sessionId) {
-        String currentSessionId = (sessionId == null || sessionId.isBlank()) ? UUID.randomUUID().toString()
-                : sessionId;
+        ChatTurn turn = prepareChatTurn(query, filterDomain, filterType, sessionId);
+        ChatResponseDTO cached = lookupCachedAnswer(turn, filterDomain, filterType);
+        if (cached != null) {
+            return cached;
+        }
+        String reply = chatModel.call(turn.prompt()).getResult().getOutput().getContent();
+        rememberChatTurn(turn, reply);
+        cacheAnswer(turn, filterDomain, filterType, reply);
+        return new ChatResponseDTO(turn.sessionId(), reply, turn.citations());
+    }
+
+    @Override
+    public Flux<ServerSentEvent<Object>> streamChatWithNotes(String query, String filterDomain, String filterType,
+            String sessionId) {
+        // 检索 + Rerank 完成后先查答案缓存，未命中时立即推送引用，随后逐段推送模型输出
+        return Mono.fromCallable(() -> prepareChatTurn(query, filterDomain, filterType, sessionId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(turn -> {
+                    ChatResponseDTO cached = lookupCachedAnswer(turn, filterDomain, filterType);
+                    return cached != null
+                            ? Flux.just(
+                                    chatEvent("citations",
+                                            new ChatResponseDTO(cached.getSessionId(), null, cached.getCitations())),
+                                    chatEvent("token", cached.getReply()),
+                                    chatEvent("done", cached))
+                            : streamFreshAnswer(turn, filterDomain, filterType);
+                });
+    }
+
+    // 客户端断开时取消订阅即中止上游生成
+    private Flux<ServerSentEvent<Object>> streamFreshAnswer(ChatTurn turn, String filterDomain, String filterType) {
+        StringBuilder reply = new StringBuilder();
+        Flux<ServerSentEvent<Object>> tokens = chatModel.stream(turn.prompt())
+                .map(NoteServiceImpl::streamContent)
+                .filter(token -> !token.isEmpty())
+                .doOnNext(reply::append)
+                .map(token -> chatEvent("token", token))
+                .doOnComplete(() -> {
+                    rememberChatTurn(turn, reply.toString());
+                    cacheAnswer(turn, filterDomain, filterType, reply.toString());
+                })
+                .doOnCancel(() -> log.info("Chat stream for session [{}] cancelled by client.", turn.sessionId()));
+        return Flux.concat(
+                Mono.just(chatEvent("citations", new ChatResponseDTO(turn.sessionId(), null, turn.citations()))),
+                tokens,
+                Mono.fromSupplier(() -> chatEvent("done",
+                        new ChatResponseDTO(turn.sessionId(), reply.toString(), turn.citations()))));
+    }
 
-        List<Document> contextDocs = retrieveContextDocs(query, 5, 0.45, filterDomain, filterType);
+    private static ServerSentEvent<Object> chatEvent(String name, Object data) {
+        return ServerSentEvent.builder()
+                .event(name)
+                .data(data)
+                .build();
+    }
 
-        List<ChatResponseDTO.Citation> citations = new ArrayList<>();
-        Set<String> seenNoteIds = new HashSet<>();
-        StringBuilder contextBuilder = new StringBuilder();
+    private static String streamContent(ChatResponse response) {
+        if (response.getResult() != null && response.getResult().getOutput() != null
+                && response.getResult().getOutput().getContent() != null) {
+            return response.getResult().getOutput().getContent();
+        }
+        return "";
+    }
+
+    /**
+     * 一轮问答的准备结果：会话 ID、引用列表与完整提示词（系统提示 + 历史 + 带上下文的提问）。
+     * stateless 表示会话此前没有历史，noteVersions 为被引用笔记的版本号（答案缓存指纹）。
+     */
+    private record ChatTurn(String sessionId, String query, Prompt prompt, List<ChatResponseDTO.Citation> citations,
+            boolean stateless, Map<String, Long> noteVersions) {
+    }
+
+    private void rememberChatTurn(ChatTurn turn, String reply) {
+        chatMemory.add(turn.sessionId(), List.of(new UserMessage(turn.query()), new AssistantMessage(reply)));
+    }
+
+    /**
+     * 无历史的会话在检索之后读取答案缓存（key 含本轮上下文指纹）；命中时仍写入对话记忆，保证后续追问有上下文。
+     */
+    private ChatResponseDTO lookupCachedAnswer(ChatTurn turn, String filterDomain, String filterType) {
+        if (!turn.stateless() || turn.citations().isEmpty()) {
+            return null;
+        }
+        AnswerCache.CachedAnswer cached = answerCache.get(
+                AnswerCache.key(turn.query(), filterDomain, filterType, turn.noteVersions()));
+        if (cached == null) {
+            return null;
+        }
+        chatMemory.add(turn.sessionId(), List.of(new UserMessage(turn.query()), new AssistantMessage(cached.reply())));
+        log.debug("Answer cache hit for query [{}].", turn.query());
+        return new ChatResponseDTO(turn.sessionId(), cached.reply(), cached.citations());
+    }
+
+    private void cacheAnswer(ChatTurn turn, String filterDomain, String filterType, String reply) {
+        // 仅缓存无历史且有引用的回答：多轮对话依赖上下文，“未找到”类回答可能因新增笔记而过时
+        if (turn.stateless() && !turn.citations().isEmpty() && reply != null && !reply.isBlank()) {
+            answerCache.put(AnswerCache.key(turn.query(), filterDomain, filterType, turn.noteVersions()),
+                    new AnswerCache.CachedAnswer(reply, List.copyOf(turn.citations()), turn.noteVersions()));
+        }
+    }
+
+    private ChatTurn prepareChatTurn(String query, String filterDomain, String filterType, String sessionId) {
+        boolean hasSession = sessionId != null && !sessionId.isBlank();
+        String currentSessionId = hasSession ? sessionId : UUID.randomUUID().toString();
+
+        // 客户端未指定会话时本轮生成的 ID 不会被再次使用，不必记录检索状态
+        List<Document> contextDocs = hasSession
+                ? retrieveSessionContextDocs(currentSessionId, query, filterDomain, filterType)
+                : retrieveContextDocs(query, CONTEXT_TOP_K, CONTEXT_RELEVANCE_THRESHOLD, filterDomain, filterType)
+                        .selected();
 
         // 批量加载所有引用的笔记以避免 N+1 查询
         Set<String> candidateIds = new HashSet<>();
@@ -1081,30 +1584,28 @@ public class NoteServiceImpl implements NoteService {
         }
         Map<String, Note> noteMap = loadActiveNotesById(candidateIds);
 
+        List<ContextPacker.Snippet> snippets = new ArrayList<>();
         for (Document doc : contextDocs) {
             String noteId = cleanNoteId(doc.getMetadata().get("note_id"));
-            if (noteId != null) {
-                Note note = noteMap.get(noteId);
-                if (note != null) {
-                    int citationIndex;
-                    if (seenNoteIds.add(noteId)) {
-                        citations.add(new ChatResponseDTO.Citation(noteId, note.getTitle()));
-                        citationIndex = citations.size();
-                    } else {
-                        citationIndex = 1;
-                        for (int i = 0; i < citations.size(); i++) {
-                            if (citations.get(i).getNoteId().equals(noteId)) {
-                                citationIndex = i + 1;
-                                break;
-                            }
-                        }
-                    }
+            Note note = noteId != null ? noteMap.get(noteId) : null;
+            if (note != null) {
+                snippets.add(new ContextPacker.Snippet(noteId, note.getTitle(), doc.getContent()));
+            }
+        }
 
-                    contextBuilder.append("[引文 ").append(citationIndex).append("]\n")
-                            .append("标题：").append(note.getTitle()).append("\n")
-                            .append("正文片段：").append(doc.getContent().trim()).append("\n\n---\n\n");
-                }
+        // 按 token 预算去重并合并：同一笔记的多个命题共用一个引用编号
+        ContextPacker.PackedContext packed = contextPacker.packSnippets(snippets, contextTokenBudget);
+        List<ChatResponseDTO.Citation> citations = new ArrayList<>();
+        StringBuilder contextBuilder = new StringBuilder();
+        for (ContextPacker.PackedNote packedNote : packed.notes()) {
+            citations.add(new ChatResponseDTO.Citation(packedNote.noteId(), packedNote.title()));
+            contextBuilder.append("[引文 ").append(citations.size()).append("]\n")
+                    .append("标题：").append(packedNote.title()).append("\n")
+                    .append("正文片段：\n");
+            for (String snippet : packedNote.snippets()) {
+                contextBuilder.append("- ").append(snippet).append("\n");
             }
+            contextBuilder.append("\n---\n\n");
         }
 
         String systemPrompt = """
@@ -1143,25 +1644,62 @@ public class NoteServiceImpl implements NoteService {
         }
         UserMessage userMessage = new UserMessage(userMessageContent);
 
-        List<Message> history = chatMemory.get(currentSessionId, 10);
+        List<Message> rawHistory = chatMemory.get(currentSessionId, 10);
+        List<Message> history = contextPacker.trimHistory(rawHistory, historyTokenBudget);
+        log.debug("Chat context packed: {} notes / {} tokens, {} history messages.", citations.size(),
+                packed.tokens(), history.size());
         List<Message> allMessages = new ArrayList<>();
         allMessages.add(systemMessage);
         allMessages.addAll(history);
         allMessages.add(userMessage);
 
-        String reply = chatModel.call(new Prompt(allMessages)).getResult().getOutput().getContent();
+        Map<String, Long> noteVersions = new HashMap<>();
+        for (ChatResponseDTO.Citation citation : citations) {
+            noteVersions.put(citation.getNoteId(), noteMap.get(citation.getNoteId()).getVersion());
+        }
+        return new ChatTurn(currentSessionId, query, new Prompt(allMessages), citations, rawHistory.isEmpty(),
+                noteVersions);
+    }
+
+    private static final int CONTEXT_TOP_K = 5;
+    private static final double CONTEXT_RELEVANCE_THRESHOLD = 0.45; // 问答上下文的 Rerank 相关度下限
+
+    /**
+     * 会话内检索：追问与上一轮话题接近时复用上一轮候选集并本地重排，否则重新检索并记录候选集。
+     */
+    private List<Document> retrieveSessionContextDocs(String sessionId, String query, String filterDomain,
+            String filterType) {
+        List<Double> queryEmbedding = embeddingModel.embed(query);
+        List<Document> reused = sessionRetrievalCache.reuse(sessionId, queryEmbedding, filterDomain, filterType,
+                CONTEXT_TOP_K, CONTEXT_RELEVANCE_THRESHOLD);
+        if (reused != null) {
+            return reused;
+        }
+        ContextRetrieval retrieval = retrieveContextDocs(query, CONTEXT_TOP_K, CONTEXT_RELEVANCE_THRESHOLD,
+                filterDomain, filterType);
+        sessionRetrievalCache.remember(sessionId, queryEmbedding, filterDomain, filterType, retrieval.candidates(),
+                retrieval.relevanceScores());
+        return retrieval.selected();
+    }
 
-        chatMemory.add(currentSessionId, new UserMessage(query));
-        chatMemory.add(currentSessionId, new AssistantMessage(reply));
+    /**
+     * 问答上下文检索结果：selected 为 Rerank 后入选的切片，candidates 为全部存活候选（供追问复用），
+     * relevanceScores 与 candidates 按下标对应（未经 Rerank 的候选为 NaN）。
+     */
+    private record ContextRetrieval(List<Document> selected, List<Document> candidates, double[] relevanceScores) {
 
-        return new ChatResponseDTO(currentSessionId, reply, citations);
+        private static ContextRetrieval unranked(List<Document> candidates) {
+            double[] scores = new double[candidates.size()];
+            Arrays.fill(scores, Double.NaN);
+            return new ContextRetrieval(Collections.emptyList(), candidates, scores);
+        }
     }
 
-    private List<Document> retrieveContextDocs(String query, int topK, double threshold, String filterDomain,
+    private ContextRetrieval retrieveContextDocs(String query, int topK, double threshold, String filterDomain,
             String filterType) {
         // 1. 构建过滤表达式
         SearchRequest request = SearchRequest
-                .query(query).withTopK(20);
+                .query(query).withTopK(Math.max(contextCandidates, topK));
 
         List<String> filterExpressions = new ArrayList<>();
         if (filterDomain != null && !filterDomain.isEmpty()) {
@@ -1183,7 +1721,7 @@ public class NoteServiceImpl implements NoteService {
         List<Document> initialResults = vectorStore.similaritySearch(request);
 
         if (initialResults.isEmpty()) {
-            return Collections.emptyList();
+            return ContextRetrieval.unranked(Collections.emptyList());
         }
 
         // 2.5 过滤已删除笔记（批量加载）
@@ -1202,7 +1740,7 @@ public class NoteServiceImpl implements NoteService {
         }
 
         if (activeResults.isEmpty()) {
-            return Collections.emptyList();
+            return ContextRetrieval.unranked(Collections.emptyList());
         }
 
         // 3. 重排序
@@ -1221,7 +1759,7 @@ public class NoteServiceImpl implements NoteService {
 
             RestClient restClient = restClientBuilder.build();
             String responseBody = restClient.post()
-                    .uri("https://dashscope.aliyuncs.com/api/v1/services/rerank/text-rerank/text-rerank")
+                    .uri(rerankUrl)
                     .header("Authorization", "Bearer " + dashscopeApiKey)
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(requestBody)
@@ -1232,25 +1770,26 @@ public class NoteServiceImpl implements NoteService {
             JsonNode resultsNode = root.path("output").path("results");
 
             if (resultsNode.isMissingNode() || resultsNode.isEmpty()) {
-                return Collections.emptyList();
+                return ContextRetrieval.unranked(activeResults);
             }
 
             List<Document> topContexts = new ArrayList<>();
+            double[] relevanceScores = new double[activeResults.size()];
+            Arrays.fill(relevanceScores, Double.NaN);
             for (JsonNode resultNode : resultsNode) {
                 int index = resultNode.path("index").asInt();
                 double score = resultNode.path("relevance_score").asDouble();
+                relevanceScores[index] = score;
 
-                if (score >= threshold) {
+                if (score >= threshold && topContexts.size() < topK) {
                     topContexts.add(activeResults.get(index));
-                    if (topContexts.size() >= topK)
-                        break;
                 }
             }
-            return topContexts;
+            return new ContextRetrieval(topContexts, activeResults, relevanceScores);
 
         } catch (Exception e) {
             e.printStackTrace();
-            return Collections.emptyList();
+            return ContextRetrieval.unranked(activeResults);
         }
     }
 
@@ -1308,9 +1847,128 @@ public class NoteServiceImpl implements NoteService {
                         ErrorCodeEnum.NOTE_NOT_FOUND, "Note not found or deleted"));
     }
 
+    private static final int RELATED_NOTES_LIMIT = 10; // 每篇笔记持久化的推荐条数
+    private static final int SIMILAR_NOTES_LIMIT = 5; // 接口返回的推荐条数
+    private static final String ENTITY_REASON_PREFIX = "✨ 推荐理由：共同探讨了 [";
+    private static final String SEMANTIC_REASON = "✨ 推荐理由：在摘要语义上高度相关。";
+
+    // 推荐写阶段共用的 advisory 锁键
+    private static final long RELATED_NOTES_LOCK_KEY = 0x52454c4154454431L;
+
     @Override
     public List<SearchResultDTO> getSimilarNotes(String id) {
-        Note note = getNote(id);
+        List<Object[]> rows = relatedNoteRepository.findTopRelated(id, SIMILAR_NOTES_LIMIT);
+        if (rows.isEmpty()) {
+            getNote(id); // 不存在或已删除时抛出 NOTE_NOT_FOUND
+            if (!relatedNoteRepository.existsByNoteIdAndRelatedNoteId(id, id)) {
+                // 功能上线前入库的笔记没有“已计算”标记，首次访问时补算一次（此后即使没有推荐也不再重算）
+                refreshRelatedNotes(id);
+                rows = relatedNoteRepository.findTopRelated(id, SIMILAR_NOTES_LIMIT);
+            }
+        }
+
+        List<SearchResultDTO> results = new ArrayList<>();
+        for (Object[] row : rows) {
+            results.add(new SearchResultDTO((String) row[0], (String) row[1], (String) row[3],
+                    ((Number) row[2]).doubleValue()));
+        }
+        return results;
+    }
+
+    @Override
+    public void refreshRelatedNotes(String noteId) {
+        requestCoalescer.execute("similar", noteId, () -> {
+            doRefreshRelatedNotes(noteId);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeRelatedNotes(String noteId) {
+        relatedNoteRepository.deleteAllInvolving(noteId);
+    }
+
+    private void doRefreshRelatedNotes(String noteId) {
+        Note note = noteRepository.findById(noteId).filter(n -> !n.isDeleted()).orElse(null);
+        if (note == null) {
+            removeRelatedNotes(noteId);
+            return;
+        }
+
+        // 检索与重排在事务外完成，写阶段整体放在一个事务里
+        List<SearchResultDTO> related = computeSimilarNotes(note, RELATED_NOTES_LIMIT);
+        transactionTemplate.executeWithoutResult(status -> writeRelatedNotes(noteId, related));
+        log.debug("Refreshed {} related notes for Note [{}].", related.size(), noteId);
+    }
+
+    private void writeRelatedNotes(String noteId, List<SearchResultDTO> related) {
+        relatedNoteRepository.lockForRefresh(RELATED_NOTES_LOCK_KEY);
+
+        // 1. 覆盖本笔记自己算出的推荐列表，并写入“已计算”标记
+        relatedNoteRepository.deleteOwnedByNoteId(noteId);
+        relatedNoteRepository.upsertOwned(UUID.randomUUID().toString(), noteId, noteId, 0.0, null);
+        for (SearchResultDTO dto : related) {
+            relatedNoteRepository.upsertOwned(UUID.randomUUID().toString(), noteId, dto.getId(),
+                    dto.getSimilarityScore(), dto.getHighlightContext());
+        }
+
+        // 2. 重建由本笔记推导出的反向边；邻居自己算出的推荐（derived = false）不受影响
+        relatedNoteRepository.deleteDerivedFrom(noteId);
+        for (SearchResultDTO dto : related) {
+            // 实体交集是对称的，可直接复用推荐理由；语义片段来自对方的内容，反向时使用通用理由
+            String reason = dto.getHighlightContext() != null && dto.getHighlightContext().startsWith(ENTITY_REASON_PREFIX)
+                    ? dto.getHighlightContext()
+                    : SEMANTIC_REASON;
+            relatedNoteRepository.upsertDerived(UUID.randomUUID().toString(), dto.getId(), noteId,
+                    dto.getSimilarityScore(), reason);
+        }
+
+        // 3. 邻居列表超出上限时裁剪低分的反向边
+        for (SearchResultDTO dto : related) {
+            relatedNoteRepository.trimDerived(dto.getId(), RELATED_NOTES_LIMIT);
+        }
+    }
+
+    private List<EntityIndexService.EntityOverlap> findEntityOverlapsFromDatabase(String id,
+            List<String> currentEntities) {
+        List<EntityIndexService.EntityOverlap> overlaps = new ArrayList<>();
+        List<Object[]> sharedNotes = noteRepository.findNotesSharingEntities(id, currentEntities);
+
+        for (Object[] row : sharedNotes) {
+            String nId = (String) row[0];
+            String title = (String) row[1];
+            String entitiesJson = (String) row[3];
+
+            try {
+                Set<String> otherEntities = new HashSet<>();
+                if (entitiesJson != null && !entitiesJson.equals("null")) {
+                    JsonNode arr = mapper.readTree(entitiesJson);
+                    if (arr.isArray()) {
+                        for (JsonNode n : arr) {
+                            otherEntities.add(n.asText());
+                        }
+                    }
+                }
+
+                List<String> intersection = new ArrayList<>(currentEntities);
+                intersection.retainAll(otherEntities);
+
+                Set<String> union = new HashSet<>(currentEntities);
+                union.addAll(otherEntities);
+
+                if (!union.isEmpty() && !intersection.isEmpty()) {
+                    overlaps.add(new EntityIndexService.EntityOverlap(nId, title, intersection,
+                            (double) intersection.size() / union.size()));
+                }
+            } catch (Exception e) {
+                log.error("Failed to parse entities for Jaccard: {}", e.getMessage());
+            }
+        }
+        return overlaps;
+    }
+
+    private List<SearchResultDTO> computeSimilarNotes(Note note, int limit) {
+        String id = note.getId();
 
         List<String> currentEntities = new ArrayList<>();
         if (note.getAiMetadata() != null && note.getAiMetadata().entities() != null) {
@@ -1323,39 +1981,15 @@ public class NoteServiceImpl implements NoteService {
         Map<String, String> noteReasons = new HashMap<>();
 
         if (!currentEntities.isEmpty()) {
-            List<Object[]> sharedNotes = noteRepository.findNotesSharingEntities(id, currentEntities);
-
-            for (Object[] row : sharedNotes) {
-                String nId = (String) row[0];
-                String title = (String) row[1];
-                String entitiesJson = (String) row[3];
-
-                try {
-                    List<String> otherEntities = new ArrayList<>();
-                    if (entitiesJson != null && !entitiesJson.equals("null")) {
-                        JsonNode arr = mapper.readTree(entitiesJson);
-                        if (arr.isArray()) {
-                            for (JsonNode n : arr) {
-                                otherEntities.add(n.asText());
-                            }
-                        }
-                    }
-
-                    List<String> intersection = new ArrayList<>(currentEntities);
-                    intersection.retainAll(otherEntities);
-
-                    Set<String> union = new HashSet<>(currentEntities);
-                    union.addAll(otherEntities);
-
-                    if (!union.isEmpty() && !intersection.isEmpty()) {
-                        double jaccard = (double) intersection.size() / union.size();
-                        jaccardScores.put(nId, jaccard);
-                        noteTitles.put(nId, title);
-                        noteReasons.put(nId, "✨ 推荐理由：共同探讨了 [" + String.join("]、[", intersection) + "]");
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to parse entities for Jaccard: {}", e.getMessage());
-                }
+            // 优先走内存实体索引；索引尚未构建完成时回退到 JSONB 查询
+            List<EntityIndexService.EntityOverlap> overlaps = entityIndexService.isReady()
+                    ? entityIndexService.findNotesSharingEntities(id)
+                    : findEntityOverlapsFromDatabase(id, currentEntities);
+            for (EntityIndexService.EntityOverlap overlap : overlaps) {
+                jaccardScores.put(overlap.noteId(), overlap.jaccard());
+                noteTitles.put(overlap.noteId(), overlap.title());
+                noteReasons.put(overlap.noteId(),
+                        ENTITY_REASON_PREFIX + String.join("]、[", overlap.sharedEntities()) + "]");
             }
         }
 
@@ -1395,7 +2029,7 @@ public class NoteServiceImpl implements NoteService {
                 if (reason != null && jaccard > 0) {
                     dto.setHighlightContext(reason);
                 } else {
-                    dto.setHighlightContext("✨ 推荐理由：在摘要语义上高度相关。" + (semanticHighlights.getOrDefault(cId, "")));
+                    dto.setHighlightContext(SEMANTIC_REASON + (semanticHighlights.getOrDefault(cId, "")));
                 }
                 finalResults.add(dto);
             }
@@ -1404,7 +2038,7 @@ public class NoteServiceImpl implements NoteService {
         // 按最终得分降序排列
         finalResults.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
 
-        return finalResults.size() > 5 ? finalResults.subList(0, 5) : finalResults;
+        return finalResults.size() > limit ? new ArrayList<>(finalResults.subList(0, limit)) : finalResults;
     }
 
     @Override
@@ -1428,9 +2062,10 @@ public class NoteServiceImpl implements NoteService {
             note.setStatus(NoteStatus.OUTDATED);
             note.setTitle(noteRequest.getTitle());
             note.setContent(noteRequest.getContent());
-            noteRepository.save(note);
+            noteRevisionStore.saveWithRevision(note);
 
             log.info("Note [{}] updated successfully and marked as OUTDATED. AI analysis not triggered.", id);
+            eventPublisher.publishEvent(new NoteChangedEvent(this, id, NoteChangeType.CONTENT_UPDATED));
         }
     }
 
@@ -1462,13 +2097,14 @@ public class NoteServiceImpl implements NoteService {
         if (noteOpt.isPresent() && !noteOpt.get().isDeleted()) {
             com.ainote.entity.Note note = noteOpt.get();
             note.setAiMetadata(metadataRequest);
-            noteRepository.save(note);
+            noteRevisionStore.saveWithRevision(note);
 
             // 向量清理已在 vectorizeContent 内部自动处理
             // 使用新的 AST 分块器重新向量化（直接接收 Markdown 内容）
             vectorizeContent(note.getContent(), new HashMap<>(), note.getId(), note.getTitle(),
                     metadataRequest);
 
+            eventPublisher.publishEvent(new NoteChangedEvent(this, id, NoteChangeType.METADATA_UPDATED));
         } else {
             throw new RuntimeException("Note not found or deleted");
         }
@@ -1490,6 +2126,13 @@ public class NoteServiceImpl implements NoteService {
             } catch (Exception e) {
                 log.error("deleteNote: Failed to purge vectors for Note {}: {}", id, e.getMessage(), e);
             }
+            try {
+                noteProgressStore.remove(id);
+            } catch (Exception e) {
+                log.warn("deleteNote: Failed to remove progress of Note {}: {}", id, e.getMessage());
+            }
+
+            eventPublisher.publishEvent(new NoteChangedEvent(this, id, NoteChangeType.DELETED));
         }
     }
 
@@ -1506,6 +2149,7 @@ public class NoteServiceImpl implements NoteService {
             // 异步重新处理以干净地重建向量并重新提取元数据
             eventPublisher.publishEvent(new NoteIngestEvent(this, note.getId(),
                     new com.ainote.dto.NoteRequestDTO(note.getTitle(), note.getContent())));
+            eventPublisher.publishEvent(new NoteChangedEvent(this, id, NoteChangeType.RESTORED));
             log.info("restoreNote: Restored Note {} from Trash and triggered background re-ingestion.", id);
         } else {
             throw new RuntimeException("Note is either not found or not in Trash.");
@@ -1676,6 +2320,9 @@ public class NoteServiceImpl implements NoteService {
 
     @Override
     public GraphDataDTO getKnowledgeGraph(String domain) {
+        if (knowledgeGraphModel.isReady()) {
+            return knowledgeGraphModel.snapshot(domain);
+        }
         List<Object[]> queryResults = noteRepository.findNotesForGraph(domain);
 
         GraphDataDTO graphData = new GraphDataDTO();
@@ -1722,9 +2369,28 @@ public class NoteServiceImpl implements NoteService {
         return graphData;
     }
 
+    @Override
+    public GraphDeltaDTO getKnowledgeGraphDelta(long sinceVersion, String domain) {
+        if (!knowledgeGraphModel.isReady()) {
+            GraphDataDTO full = getKnowledgeGraph(domain);
+            return new GraphDeltaDTO(sinceVersion, 0, true, full.getNodes(), Collections.emptyList(),
+                    full.getLinks(), Collections.emptyList());
+        }
+        return knowledgeGraphModel.deltaSince(sinceVersion, domain);
+    }
+
+    @Override
+    public GraphDataDTO getClusteredGraph(String domain, Integer maxNodes) {
+        return graphClusterService.clusteredGraph(domain, clamp(maxNodes, maxGraphNodes, maxGraphNodes));
+    }
+
     @Override
     public GraphDataDTO getInitialGraph() {
-        List<Object[]> domainRows = noteRepository.countTopDomains();
+        List<Object[]> domainRows = knowledgeGraphModel.isReady()
+                ? knowledgeGraphModel.domainCounts().entrySet().stream().limit(20)
+                        .map(e -> new Object[] { e.getKey(), e.getValue() })
+                        .collect(Collectors.toList())
+                : noteRepository.countTopDomains();
 
         GraphDataDTO graphData = new GraphDataDTO();
         List<GraphDataDTO.NodeDTO> nodes = new ArrayList<>();
@@ -1752,20 +2418,51 @@ public class NoteServiceImpl implements NoteService {
         List<GraphDataDTO.LinkDTO> links = new ArrayList<>();
 
         try {
-            if ("domain".equals(nodeType)) {
-                List<String> entities = noteRepository.findEntitiesByDomain(cleanId);
+            if ("cluster".equals(nodeType)) {
+                List<String> entities = graphClusterService.clusterEntities(cleanId, maxGraphNodes);
+                if (entities == null) {
+                    log.warn("Cluster [{}] is no longer available, client should reload the clustered graph.",
+                            nodeId);
+                    entities = Collections.emptyList();
+                }
+                for (String entity : entities) {
+                    nodes.add(new GraphDataDTO.NodeDTO("E:" + entity, entity, "entity", 10));
+                    links.add(new GraphDataDTO.LinkDTO(nodeId, "E:" + entity, "includes"));
+                }
+            } else if ("domain".equals(nodeType)) {
+                List<String> entities = entityIndexService.isReady()
+                        ? entityIndexService.findEntitiesByDomain(cleanId)
+                        : noteRepository.findEntitiesByDomain(cleanId);
                 for (String entity : entities) {
+                    if (nodes.size() >= maxGraphNodes) {
+                        break;
+                    }
                     if (entity != null && !entity.isBlank() && !entity.equals("null")) {
                         nodes.add(new GraphDataDTO.NodeDTO("E:" + entity, entity, "entity", 10));
                         links.add(new GraphDataDTO.LinkDTO(nodeId, "E:" + entity, "includes"));
                     }
                 }
             } else if ("entity".equals(nodeType)) {
-                List<Object[]> noteRows = noteRepository.findNotesByEntity(cleanId);
-                for (Object[] row : noteRows) {
-                    String nId = (String) row[0];
-                    String title = (String) row[1];
-                    String contentType = (String) row[2];
+                for (EntityCooccurrenceGraph.Neighbor neighbor : entityCooccurrenceGraph.topNeighbors(cleanId,
+                        Math.min(cooccurrenceTopK, maxGraphNodes))) {
+                    nodes.add(new GraphDataDTO.NodeDTO("E:" + neighbor.entity(), neighbor.entity(), "entity",
+                            neighbor.count()));
+                    links.add(new GraphDataDTO.LinkDTO(nodeId, "E:" + neighbor.entity(), "co-occurs",
+                            neighbor.npmi()));
+                }
+                List<EntityIndexService.IndexedNote> indexedNotes = entityIndexService.isReady()
+                        ? entityIndexService.findNotesByEntity(cleanId)
+                        : noteRepository.findNotesByEntity(cleanId).stream()
+                                .map(row -> new EntityIndexService.IndexedNote((String) row[0], (String) row[1],
+                                        (String) row[2]))
+                                .collect(Collectors.toList());
+                for (EntityIndexService.IndexedNote indexed : indexedNotes) {
+                    if (nodes.size() >= maxGraphNodes) {
+                        break;
+                    }
+                    String nId = indexed.id();
+                    String title = indexed.title();
+                    String contentType = indexed.contentType();
                     String group = (contentType != null && !contentType.isBlank() && !contentType.equals("null"))
                             ? contentType
                             : "note";
@@ -1774,8 +2471,13 @@ public class NoteServiceImpl implements NoteService {
                     links.add(new GraphDataDTO.LinkDTO(nodeId, "N:" + nId, "mentions"));
                 }
             } else if ("note".equals(nodeType)) {
-                List<String> entities = noteRepository.findEntitiesByNoteId(cleanId);
+                List<String> entities = entityIndexService.isReady()
+                        ? entityIndexService.findEntitiesByNoteId(cleanId)
+                        : noteRepository.findEntitiesByNoteId(cleanId);
                 for (String entity : entities) {
+                    if (nodes.size() >= maxGraphNodes) {
+                        break;
+                    }
                     if (entity != null && !entity.isBlank() && !entity.equals("null")) {
                         nodes.add(new GraphDataDTO.NodeDTO("E:" + entity, entity, "entity", 10));
                         links.add(new GraphDataDTO.LinkDTO(nodeId, "E:" + entity, "co-occurs"));
@@ -1791,12 +2493,22 @@ public class NoteServiceImpl implements NoteService {
         return graphData;
     }
 
+    private static final int TAG_SUGGESTION_LIMIT = 10;
+
     @Override
     public Map<String, List<String>> suggestTags(String keyword) {
         Map<String, List<String>> suggestions = new HashMap<>();
         if (keyword == null || keyword.isBlank()) {
             return suggestions;
         }
+        // 内存联想索引就绪前回退到数据库查询
+        if (tagSuggestionIndex.isReady()) {
+            suggestions.put("entities", tagSuggestionIndex.suggest(NoteTagType.ENTITY, keyword, TAG_SUGGESTION_LIMIT));
+            suggestions.put("domains", tagSuggestionIndex.suggest(NoteTagType.DOMAIN, keyword, TAG_SUGGESTION_LIMIT));
+            suggestions.put("contentTypes",
+                    tagSuggestionIndex.suggest(NoteTagType.CONTENT_TYPE, keyword, TAG_SUGGESTION_LIMIT));
+            return suggestions;
+        }
         suggestions.put("entities", noteRepository.suggestEntities(keyword));
         suggestions.put("domains", noteRepository.suggestDomains(keyword));
         suggestions.put("contentTypes", noteRepository.suggestContentTypes(keyword));
@@ -1835,13 +2547,7 @@ public class NoteServiceImpl implements NoteService {
                         new SystemMessage(systemInstruction),
                         new UserMessage(userContent)));
 
-        return chatModel.stream(prompt).map(response -> {
-            if (response.getResult() != null && response.getResult().getOutput() != null
-                    && response.getResult().getOutput().getContent() != null) {
-                return response.getResult().getOutput().getContent();
-            }
-            return "";
-        });
+        return chatModel.stream(prompt).map(NoteServiceImpl::streamContent);
     }
 
     @Override
@@ -1849,19 +2555,24 @@ public class NoteServiceImpl implements NoteService {
         if (concept == null || concept.isBlank()) {
             return Collections.emptyList();
         }
+        return new ArrayList<>(requestCoalescer.execute("drill-down", concept, () -> doDrillDownConcept(concept)));
+    }
 
+    private List<DrilledPropositionDTO> doDrillDownConcept(String concept) {
         log.info("Starting Phase 3 Hybrid Search Drill-Down for concept: {}", concept);
 
         // 轨道 A：硬匹配查询（实体标签精确查找）
-        String jsonConcept = "\"" + concept + "\""; // JSONB 数组包含查询需要特定格式
-        String jsonArrayConcept = "[\"" + concept + "\"]";
-        List<String> matchedNoteIds = noteRepository.findNoteIdsByEntityLike(jsonArrayConcept, concept);
-        Set<String> matchedNoteIdSet = new HashSet<>(matchedNoteIds);
-        log.debug("Orbital A (JSONB Metadata) matched {} notes for concept [{}]", matchedNoteIdSet.size(), concept);
+        Set<String> matchedNoteIdSet;
+        if (entityIndexService.isReady()) {
+            matchedNoteIdSet = entityIndexService.findNoteIdsByConcept(concept);
+        } else {
+            matchedNoteIdSet = new HashSet<>(noteRepository.findNoteIdsByEntityLike(concept));
+        }
+        log.debug("Orbital A (Entity Metadata) matched {} notes for concept [{}]", matchedNoteIdSet.size(), concept);
 
         // 轨道 B：软语义查询（向量存储）
         SearchRequest request = SearchRequest
-                .query(concept).withTopK(50);
+                .query(concept).withTopK(drillDownCandidates);
         List<Document> docs = vectorStore.similaritySearch(request);
         log.debug("Orbital B (Vector Store) found {} slices.", docs.size());
 
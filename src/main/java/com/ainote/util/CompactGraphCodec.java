@@ -0,0 +1,249 @@
+package com.ainote.util;
+
+import com.ainote.dto.GraphDataDTO;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 知识图谱的紧凑二进制编码（application/x-ainote-graph）。
+ * <p>
+ * 所有字符串（节点 ID、标签、分组、连线类型）去重后放入字符串表，节点与连线按列存储为字符串表下标，
+ * 字符串下标从 1 开始（0 表示 null），整数一律用无符号变长编码。布局（大端）：
+ * <pre>
+ * magic "AGR1" | version int64
+ * stringCount varint | (byteLength varint, UTF-8 bytes) * stringCount
+ * nodeCount varint   | id[] | label[] | group[] | weight[] (zigzag varint)
+ * linkCount varint   | source[] | target[] | type[] | hasWeights byte | weight[] (float32，仅 hasWeights=1 时存在)
+ * </pre>
+ * 连线端点同样是字符串下标而不是节点下标，因为展开响应中的源节点不在本次返回的节点列表里。
+ */
+public final class CompactGraphCodec {
+
+    private static final byte[] MAGIC = { 'A', 'G', 'R', '1' };
+
+    private CompactGraphCodec() {
+    }
+
+    public static void encode(GraphDataDTO graph, OutputStream target) throws IOException {
+        Output out = encode(graph);
+        target.write(out.bytes, 0, out.size);
+        target.flush();
+    }
+
+    public static Output encode(GraphDataDTO graph) {
+        List<GraphDataDTO.NodeDTO> nodes = graph.getNodes() != null ? graph.getNodes() : List.of();
+        List<GraphDataDTO.LinkDTO> links = graph.getLinks() != null ? graph.getLinks() : List.of();
+
+        StringTable strings = new StringTable();
+        int[] nodeIds = new int[nodes.size()];
+        int[] nodeLabels = new int[nodes.size()];
+        int[] nodeGroups = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            GraphDataDTO.NodeDTO node = nodes.get(i);
+            nodeIds[i] = strings.indexOf(node.getId());
+            nodeLabels[i] = strings.indexOf(node.getLabel());
+            nodeGroups[i] = strings.indexOf(node.getGroup());
+        }
+        int[] linkSources = new int[links.size()];
+        int[] linkTargets = new int[links.size()];
+        int[] linkTypes = new int[links.size()];
+        for (int i = 0; i < links.size(); i++) {
+            GraphDataDTO.LinkDTO link = links.get(i);
+            linkSources[i] = strings.indexOf(link.getSource());
+            linkTargets[i] = strings.indexOf(link.getTarget());
+            linkTypes[i] = strings.indexOf(link.getType());
+        }
+
+        Output out = new Output(strings.byteLength + (nodes.size() * 4 + links.size() * 3) * 2 + 64);
+        out.write(MAGIC);
+        out.writeLong(graph.getVersion());
+
+        out.writeVarint(strings.values.size());
+        for (String value : strings.values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        out.writeVarint(nodes.size());
+        out.writeColumn(nodeIds);
+        out.writeColumn(nodeLabels);
+        out.writeColumn(nodeGroups);
+        for (GraphDataDTO.NodeDTO node : nodes) {
+            out.writeVarint((node.getWeight() << 1) ^ (node.getWeight() >> 31));
+        }
+
+        out.writeVarint(links.size());
+        out.writeColumn(linkSources);
+        out.writeColumn(linkTargets);
+        out.writeColumn(linkTypes);
+        // 结构性连线权重恒为 1，整列省略
+        boolean hasWeights = links.stream().anyMatch(link -> link.getWeight() != 1.0);
+        out.writeByte(hasWeights ? 1 : 0);
+        if (hasWeights) {
+            for (GraphDataDTO.LinkDTO link : links) {
+                out.writeInt(Float.floatToIntBits((float) link.getWeight()));
+            }
+        }
+        return out;
+    }
+
+    public static GraphDataDTO decode(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a compact graph payload");
+        }
+        long version = in.readLong();
+
+        String[] strings = new String[readVarint(in)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readVarint(in)];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int nodeCount = readVarint(in);
+        int[] nodeIds = readColumn(in, nodeCount);
+        int[] nodeLabels = readColumn(in, nodeCount);
+        int[] nodeGroups = readColumn(in, nodeCount);
+        List<GraphDataDTO.NodeDTO> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            int zigzag = readVarint(in);
+            nodes.add(new GraphDataDTO.NodeDTO(string(strings, nodeIds[i]), string(strings, nodeLabels[i]),
+                    string(strings, nodeGroups[i]), (zigzag >>> 1) ^ -(zigzag & 1)));
+        }
+
+        int linkCount = readVarint(in);
+        int[] linkSources = readColumn(in, linkCount);
+        int[] linkTargets = readColumn(in, linkCount);
+        int[] linkTypes = readColumn(in, linkCount);
+        boolean hasWeights = in.readByte() != 0;
+        List<GraphDataDTO.LinkDTO> links = new ArrayList<>(linkCount);
+        for (int i = 0; i < linkCount; i++) {
+            links.add(new GraphDataDTO.LinkDTO(string(strings, linkSources[i]), string(strings, linkTargets[i]),
+                    string(strings, linkTypes[i]), hasWeights ? in.readFloat() : 1.0));
+        }
+        return new GraphDataDTO(nodes, links, version);
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        // UTF-8 长度的粗略上界，用于预分配输出缓冲
+        private int byteLength;
+
+        private int indexOf(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                values.add(value);
+                byteLength += value.length() * 3 + 5;
+                index = values.size();
+                indexes.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 非同步的可增长字节缓冲（DataOutputStream 逐字节写入 ByteArrayOutputStream 的锁开销在大图上很明显）。
+     */
+    public static final class Output {
+        private byte[] bytes;
+        private int size;
+
+        private Output(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private void write(byte[] values) {
+            ensure(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeColumn(int[] column) {
+            for (int value : column) {
+                writeVarint(value);
+            }
+        }
+    }
+
+    private static String string(String[] strings, int index) {
+        return index == 0 ? null : strings[index - 1];
+    }
+
+    private static int[] readColumn(DataInputStream in, int size) throws IOException {
+        int[] column = new int[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = readVarint(in);
+        }
+        return column;
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,122 @@
+package com.ainote.util;
+
+import java.util.Arrays;
+
+/**
+ * 非负 int 键 → int 计数的开放寻址哈希表（线性探测），避免 HashMap&lt;Integer, Integer&gt; 的装箱开销。
+ * 计数归零的键会被删除（后移删除，不留墓碑）。非线程安全。
+ */
+public class IntIntCounter {
+
+    private static final int EMPTY = -1;
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int count);
+    }
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntIntCounter() {
+        this(4);
+    }
+
+    public IntIntCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int key) {
+        int slot = find(key);
+        return keys[slot] == key ? counts[slot] : 0;
+    }
+
+    /**
+     * 累加计数并返回新值；结果不大于 0 时删除该键。
+     */
+    public int add(int key, int delta) {
+        int slot = find(key);
+        if (keys[slot] == key) {
+            int updated = counts[slot] + delta;
+            if (updated <= 0) {
+                removeAt(slot);
+                return 0;
+            }
+            counts[slot] = updated;
+            return updated;
+        }
+        if (delta <= 0) {
+            return 0;
+        }
+        keys[slot] = key;
+        counts[slot] = delta;
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return delta;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        keys[slot] = EMPTY;
+        size--;
+        // 后移删除：把后续同一探测链上的元素前移，保持查找不中断
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                keys[slot] = keys[next];
+                counts[slot] = counts[next];
+                keys[next] = EMPTY;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,287 @@
+package com.ainote.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按行的文本差异（Myers O(ND) 算法）：生成可回放的紧凑增量、应用增量，以及输出 unified diff。
+ * <p>
+ * 增量格式每条指令占一行：{@code =n} 复制旧文本 n 行，{@code -n} 跳过旧文本 n 行，
+ * {@code +n} 后跟 n 行新插入的原文。文本按 "\n" 切分并保留末尾空行，因此回放结果与原文逐字节一致。
+ */
+public final class LineDelta {
+
+    // 编辑距离超过该值时放弃求最短编辑脚本，中间部分整体按“删除 + 插入”处理，防止病态输入耗尽内存
+    private static final int MAX_EDIT_DISTANCE = 2000;
+
+    public enum Op {
+        EQUAL, DELETE, INSERT
+    }
+
+    public record Run(Op op, int count) {
+    }
+
+    private LineDelta() {
+    }
+
+    public static String[] lines(String text) {
+        return (text != null ? text : "").split("\n", -1);
+    }
+
+    /**
+     * 生成把 oldText 变为 newText 的增量。
+     */
+    public static String encode(String oldText, String newText) {
+        String[] a = lines(oldText);
+        String[] b = lines(newText);
+        StringBuilder delta = new StringBuilder();
+        int newPos = 0;
+        for (Run run : diff(a, b)) {
+            if (!delta.isEmpty()) {
+                delta.append('\n');
+            }
+            switch (run.op()) {
+                case EQUAL -> {
+                    delta.append('=').append(run.count());
+                    newPos += run.count();
+                }
+                case DELETE -> delta.append('-').append(run.count());
+                case INSERT -> {
+                    delta.append('+').append(run.count());
+                    for (int i = 0; i < run.count(); i++) {
+                        delta.append('\n').append(b[newPos++]);
+                    }
+                }
+            }
+        }
+        return delta.toString();
+    }
+
+    /**
+     * 在 oldText 上回放 {@link #encode} 生成的增量。
+     */
+    public static String apply(String oldText, String delta) {
+        String[] a = lines(oldText);
+        List<String> result = new ArrayList<>(a.length);
+        if (delta.isEmpty()) {
+            return String.join("\n", result);
+        }
+        String[] instructions = delta.split("\n", -1);
+        int oldPos = 0;
+        for (int i = 0; i < instructions.length; i++) {
+            String instruction = instructions[i];
+            int count = Integer.parseInt(instruction.substring(1));
+            switch (instruction.charAt(0)) {
+                case '=' -> {
+                    result.addAll(Arrays.asList(a).subList(oldPos, oldPos + count));
+                    oldPos += count;
+                }
+                case '-' -> oldPos += count;
+                case '+' -> {
+                    result.addAll(Arrays.asList(instructions).subList(i + 1, i + 1 + count));
+                    i += count;
+                }
+                default -> throw new IllegalArgumentException("Malformed delta instruction: " + instruction);
+            }
+        }
+        return String.join("\n", result);
+    }
+
+    /**
+     * 标准 unified diff（不含文件头），每个 hunk 前后保留 context 行上下文。
+     */
+    public static String unifiedDiff(String oldText, String newText, int context) {
+        String[] a = lines(oldText);
+        String[] b = lines(newText);
+
+        // 展开为逐行操作，便于按上下文切分 hunk
+        List<Op> ops = new ArrayList<>(Math.max(a.length, b.length));
+        for (Run run : diff(a, b)) {
+            ops.addAll(Collections.nCopies(run.count(), run.op()));
+        }
+
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        int oldPos = 0;
+        int newPos = 0;
+        while (i < ops.size()) {
+            if (ops.get(i) == Op.EQUAL) {
+                i++;
+                oldPos++;
+                newPos++;
+                continue;
+            }
+            // hunk 起点向前回退 context 行
+            int back = 0;
+            while (back < context && i - back - 1 >= 0 && ops.get(i - back - 1) == Op.EQUAL) {
+                back++;
+            }
+            int start = i - back;
+            int oldStart = oldPos - back;
+            int newStart = newPos - back;
+
+            // hunk 终点：两处修改之间的相同行不超过 2 * context 时合并为一个 hunk
+            int end = i;
+            int lastChange = i;
+            while (end < ops.size()) {
+                if (ops.get(end) != Op.EQUAL) {
+                    lastChange = end;
+                } else if (end - lastChange > 2 * context) {
+                    break;
+                }
+                end++;
+            }
+            end = Math.min(ops.size(), lastChange + 1 + context);
+
+            StringBuilder body = new StringBuilder();
+            int oldCount = 0;
+            int newCount = 0;
+            int o = oldStart;
+            int n = newStart;
+            for (int j = start; j < end; j++) {
+                switch (ops.get(j)) {
+                    case EQUAL -> {
+                        body.append(' ').append(a[o++]).append('\n');
+                        n++;
+                        oldCount++;
+                        newCount++;
+                    }
+                    case DELETE -> {
+                        body.append('-').append(a[o++]).append('\n');
+                        oldCount++;
+                    }
+                    case INSERT -> {
+                        body.append('+').append(b[n++]).append('\n');
+                        newCount++;
+                    }
+                }
+            }
+            out.append("@@ -").append(oldCount == 0 ? oldStart : oldStart + 1).append(',').append(oldCount)
+                    .append(" +").append(newCount == 0 ? newStart : newStart + 1).append(',').append(newCount)
+                    .append(" @@\n").append(body);
+
+            i = end;
+            oldPos = o;
+            newPos = n;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 最短编辑脚本（相邻的同类操作已合并）。
+     */
+    public static List<Run> diff(String[] a, String[] b) {
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix].equals(b[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix].equals(b[b.length - 1 - suffix])) {
+            suffix++;
+        }
+
+        // 中间部分的行映射为 int，比较时不再逐字符比对字符串
+        Map<String, Integer> lineIds = new HashMap<>();
+        int[] x = new int[a.length - prefix - suffix];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = lineIds.computeIfAbsent(a[prefix + i], line -> lineIds.size());
+        }
+        int[] y = new int[b.length - prefix - suffix];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = lineIds.computeIfAbsent(b[prefix + i], line -> lineIds.size());
+        }
+
+        List<Run> runs = new ArrayList<>();
+        append(runs, Op.EQUAL, prefix);
+        for (Op op : middle(x, y)) {
+            append(runs, op, 1);
+        }
+        append(runs, Op.EQUAL, suffix);
+        return runs;
+    }
+
+    private static List<Op> middle(int[] x, int[] y) {
+        int n = x.length;
+        int m = y.length;
+        List<Op> ops = new ArrayList<>(n + m);
+        if (n == 0 || m == 0) {
+            ops.addAll(Collections.nCopies(n, Op.DELETE));
+            ops.addAll(Collections.nCopies(m, Op.INSERT));
+            return ops;
+        }
+
+        int maxD = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = maxD + 1;
+        int[] v = new int[2 * maxD + 3];
+        // trace[d] 为第 d 步开始前 v 在 [-d-1, d+1] 区间的副本，回溯时使用
+        List<int[]> trace = new ArrayList<>();
+        int found = -1;
+        search:
+        for (int d = 0; d <= maxD; d++) {
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int xi = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]))
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int yi = xi - k;
+                while (xi < n && yi < m && x[xi] == y[yi]) {
+                    xi++;
+                    yi++;
+                }
+                v[offset + k] = xi;
+                if (xi >= n && yi >= m) {
+                    found = d;
+                    break search;
+                }
+            }
+        }
+        if (found < 0) {
+            ops.addAll(Collections.nCopies(n, Op.DELETE));
+            ops.addAll(Collections.nCopies(m, Op.INSERT));
+            return ops;
+        }
+
+        int xi = n;
+        int yi = m;
+        for (int d = found; d > 0; d--) {
+            int[] previous = trace.get(d);
+            int k = xi - yi;
+            boolean down = k == -d || (k != d && previous[k - 1 + d + 1] < previous[k + 1 + d + 1]);
+            int prevK = down ? k + 1 : k - 1;
+            int prevX = previous[prevK + d + 1];
+            int prevY = prevX - prevK;
+            while (xi > prevX && yi > prevY) {
+                ops.add(Op.EQUAL);
+                xi--;
+                yi--;
+            }
+            ops.add(down ? Op.INSERT : Op.DELETE);
+            xi = prevX;
+            yi = prevY;
+        }
+        while (xi > 0 && yi > 0) {
+            ops.add(Op.EQUAL);
+            xi--;
+            yi--;
+        }
+        Collections.reverse(ops);
+        return ops;
+    }
+
+    private static void append(List<Run> runs, Op op, int count) {
+        if (count == 0) {
+            return;
+        }
+        int last = runs.size() - 1;
+        if (last >= 0 && runs.get(last).op() == op) {
+            runs.set(last, new Run(op, runs.get(last).count() + count));
+        } else {
+            runs.add(new Run(op, count));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.ainote.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Louvain 社区发现（加权无向图）。
+ * <p>
+ * 每一层先做局部移动（把节点移入模块度增益最大的相邻社区，直到不再有节点移动），
+ * 再把社区聚合为超节点进入下一层，直到某一层没有任何合并。邻接表以 CSR 数组存储，
+ * 社区内部的边在聚合后成为自环。
+ */
+public class LouvainClustering {
+
+    private static final int MAX_PASSES_PER_LEVEL = 20;
+    private static final int MAX_LEVELS = 10;
+
+    /**
+     * CSR 形式的对称邻接矩阵：节点 i 的邻居为 neighbors[offsets[i] .. offsets[i+1])，允许自环与重复邻居（权重累加）。
+     */
+    private record Graph(int size, int[] offsets, int[] neighbors, double[] weights) {
+    }
+
+    /**
+     * 无向边列表 → 每个节点所属社区编号（从 0 开始连续编号）。
+     *
+     * @param nodeCount 节点数
+     * @param from      边起点
+     * @param to        边终点
+     * @param weight    边权重（同一对节点的多条边会累加）
+     */
+    public static int[] cluster(int nodeCount, int[] from, int[] to, double[] weight, long seed) {
+        Graph graph = fromEdgeList(nodeCount, from, to, weight);
+
+        int[] membership = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            membership[i] = i;
+        }
+        Random random = new Random(seed);
+
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            int[] communities = moveNodes(graph, random);
+            int communityCount = Arrays.stream(communities).max().orElse(-1) + 1;
+            for (int i = 0; i < nodeCount; i++) {
+                membership[i] = communities[membership[i]];
+            }
+            if (communityCount == graph.size()) {
+                break;
+            }
+            graph = aggregate(graph, communities, communityCount);
+        }
+        return membership;
+    }
+
+    /**
+     * 局部移动阶段，返回连续编号后的社区。
+     */
+    private static int[] moveNodes(Graph graph, Random random) {
+        int n = graph.size();
+        double[] degree = new double[n];
+        double totalWeight = 0;
+        for (int i = 0; i < n; i++) {
+            for (int p = graph.offsets()[i]; p < graph.offsets()[i + 1]; p++) {
+                degree[i] += graph.weights()[p];
+            }
+            totalWeight += degree[i];
+        }
+
+        int[] community = new int[n];
+        double[] communityDegree = new double[n];
+        for (int i = 0; i < n; i++) {
+            community[i] = i;
+            communityDegree[i] = degree[i];
+        }
+        if (totalWeight == 0) {
+            return community;
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        double[] linkWeight = new double[n];
+        int[] touched = new int[n];
+        for (int pass = 0; pass < MAX_PASSES_PER_LEVEL; pass++) {
+            boolean moved = false;
+            for (int i : order) {
+                int current = community[i];
+
+                // 统计节点到各相邻社区的连边权重（不含自环）
+                int touchedCount = 0;
+                linkWeight[current] = 0;
+                touched[touchedCount++] = current;
+                for (int p = graph.offsets()[i]; p < graph.offsets()[i + 1]; p++) {
+                    int j = graph.neighbors()[p];
+                    if (j == i) {
+                        continue;
+                    }
+                    int c = community[j];
+                    if (linkWeight[c] == 0 && c != current) {
+                        touched[touchedCount++] = c;
+                    }
+                    linkWeight[c] += graph.weights()[p];
+                }
+
+                communityDegree[current] -= degree[i];
+                int best = current;
+                double bestGain = linkWeight[current] - communityDegree[current] * degree[i] / totalWeight;
+                for (int t = 0; t < touchedCount; t++) {
+                    int c = touched[t];
+                    double gain = linkWeight[c] - communityDegree[c] * degree[i] / totalWeight;
+                    if (gain > bestGain + 1e-12) {
+                        bestGain = gain;
+                        best = c;
+                    }
+                }
+                communityDegree[best] += degree[i];
+                community[i] = best;
+                if (best != current) {
+                    moved = true;
+                }
+
+                for (int t = 0; t < touchedCount; t++) {
+                    linkWeight[touched[t]] = 0;
+                }
+            }
+            if (!moved) {
+                break;
+            }
+        }
+        return renumber(community);
+    }
+
+    // 边列表计数排序为 CSR，无向边在两端各存一次
+    private static Graph fromEdgeList(int size, int[] from, int[] to, double[] weight) {
+        int[] offsets = new int[size + 1];
+        for (int e = 0; e < from.length; e++) {
+            offsets[from[e] + 1]++;
+            if (from[e] != to[e]) {
+                offsets[to[e] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] cursor = Arrays.copyOf(offsets, size);
+        int[] neighbors = new int[offsets[size]];
+        double[] weights = new double[offsets[size]];
+        for (int e = 0; e < from.length; e++) {
+            int slot = cursor[from[e]]++;
+            neighbors[slot] = to[e];
+            weights[slot] = weight[e];
+            if (from[e] != to[e]) {
+                slot = cursor[to[e]]++;
+                neighbors[slot] = from[e];
+                weights[slot] = weight[e];
+            }
+        }
+        return new Graph(size, offsets, neighbors, weights);
+    }
+
+    // 社区聚合为超节点：逐个社区累加其成员到各社区的连边权重，内部连边成为自环
+    private static Graph aggregate(Graph graph, int[] communities, int communityCount) {
+        int[] memberOffsets = new int[communityCount + 1];
+        for (int c : communities) {
+            memberOffsets[c + 1]++;
+        }
+        for (int c = 0; c < communityCount; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] members = new int[communities.length];
+        int[] cursor = Arrays.copyOf(memberOffsets, communityCount);
+        for (int i = 0; i < communities.length; i++) {
+            members[cursor[communities[i]]++] = i;
+        }
+
+        int[] offsets = new int[communityCount + 1];
+        IntList neighbors = new IntList();
+        DoubleList weights = new DoubleList();
+        double[] linkWeight = new double[communityCount];
+        boolean[] seen = new boolean[communityCount];
+        int[] touched = new int[communityCount];
+        for (int c = 0; c < communityCount; c++) {
+            int touchedCount = 0;
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int i = members[m];
+                for (int p = graph.offsets()[i]; p < graph.offsets()[i + 1]; p++) {
+                    int d = communities[graph.neighbors()[p]];
+                    if (!seen[d]) {
+                        seen[d] = true;
+                        touched[touchedCount++] = d;
+                    }
+                    linkWeight[d] += graph.weights()[p];
+                }
+            }
+            for (int t = 0; t < touchedCount; t++) {
+                int d = touched[t];
+                neighbors.add(d);
+                weights.add(linkWeight[d]);
+                linkWeight[d] = 0;
+                seen[d] = false;
+            }
+            offsets[c + 1] = neighbors.size;
+        }
+        return new Graph(communityCount, offsets, neighbors.toArray(), weights.toArray());
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class DoubleList {
+        private double[] values = new double[16];
+        private int size;
+
+        private void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static int[] renumber(int[] community) {
+        int[] ids = new int[community.length];
+        Arrays.fill(ids, -1);
+        int next = 0;
+        int[] result = new int[community.length];
+        for (int i = 0; i < community.length; i++) {
+            if (ids[community[i]] < 0) {
+                ids[community[i]] = next++;
+            }
+            result[i] = ids[community[i]];
+        }
+        return result;
+    }
+}
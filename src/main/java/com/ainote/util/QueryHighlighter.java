@@ -0,0 +1,245 @@
+package com.ainote.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 多词高亮器：每个查询构建一次，之后对任意数量的结果文本复用。
+ * <p>
+ * 查询被切分为归一化的词项（拉丁/数字按单词，中日韩文字按二元组），构建 Aho-Corasick 自动机，
+ * 对正文一次扫描即可找出所有词项的命中位置（拉丁/数字词项须落在单词边界上，避免 "in"、"is" 命中单词内部）；
+ * 随后选取命中最密集的窗口并插入 &lt;em&gt; 标记，全程不使用正则。
+ */
+public class QueryHighlighter {
+
+    private static final int WINDOW_SIZE = 150;
+    private static final int LEADING_CONTEXT = 50;
+
+    public record Span(int start, int end) {
+    }
+
+    // Aho-Corasick 自动机（节点 0 为根）
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    private final List<Integer> outputLength = new ArrayList<>(); // 以该节点结尾的最长词项长度，0 表示无
+
+    private QueryHighlighter() {
+        newNode();
+    }
+
+    public static QueryHighlighter compile(String query) {
+        QueryHighlighter highlighter = new QueryHighlighter();
+        for (String term : tokenize(query)) {
+            highlighter.addTerm(term);
+        }
+        highlighter.buildFailureLinks();
+        return highlighter;
+    }
+
+    /**
+     * 将查询切分为词项：拉丁字母/数字连续片段作为一个词，CJK 连续片段切为二元组（单字时保留单字）。
+     */
+    public static Set<String> tokenize(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query == null) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        StringBuilder cjkRun = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? Character.toLowerCase(query.charAt(i)) : ' ';
+            if (isCjk(c)) {
+                flushWord(word, terms);
+                cjkRun.append(c);
+            } else if (Character.isLetterOrDigit(c)) {
+                flushCjk(cjkRun, terms);
+                word.append(c);
+            } else {
+                flushWord(word, terms);
+                flushCjk(cjkRun, terms);
+            }
+        }
+        return terms;
+    }
+
+    private static void flushWord(StringBuilder word, Set<String> terms) {
+        if (!word.isEmpty()) {
+            terms.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(StringBuilder run, Set<String> terms) {
+        if (run.length() == 1) {
+            terms.add(run.toString());
+        } else {
+            for (int i = 0; i + 1 < run.length(); i++) {
+                terms.add(run.substring(i, i + 2));
+            }
+        }
+        run.setLength(0);
+    }
+
+    // 拉丁字母 / 数字，单词边界判定用
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) && !isCjk(c);
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputLength.add(0);
+        return transitions.size() - 1;
+    }
+
+    private void addTerm(String term) {
+        int node = 0;
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            Integer next = transitions.get(node).get(c);
+            if (next == null) {
+                next = newNode();
+                transitions.get(node).put(c, next);
+            }
+            node = next;
+        }
+        outputLength.set(node, Math.max(outputLength.get(node), term.length()));
+    }
+
+    private void buildFailureLinks() {
+        List<Integer> queue = new ArrayList<>(transitions.get(0).values());
+        for (int head = 0; head < queue.size(); head++) {
+            int node = queue.get(head);
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int f = failure.get(node);
+                while (f != 0 && !transitions.get(f).containsKey(edge.getKey())) {
+                    f = failure.get(f);
+                }
+                Integer target = transitions.get(f).get(edge.getKey());
+                int childFailure = target != null && target != child ? target : 0;
+                failure.set(child, childFailure);
+                // 继承后缀节点的输出，保证较短词项在较长词项内部也能命中
+                outputLength.set(child, Math.max(outputLength.get(child), outputLength.get(childFailure)));
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 一次扫描找出所有词项命中区间，并合并重叠/相邻区间。
+     */
+    public List<Span> findMatches(String text) {
+        List<Span> merged = new ArrayList<>();
+        if (text == null || transitions.get(0).isEmpty()) {
+            return merged;
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            while (node != 0 && !transitions.get(node).containsKey(c)) {
+                node = failure.get(node);
+            }
+            node = transitions.get(node).getOrDefault(c, 0);
+
+            int length = outputLength.get(node);
+            // 只需检查最长词项：同一节点上较短的拉丁词项是其后缀，左右边界条件不会更宽松
+            if (length > 0 && onWordBoundary(text, i + 1 - length, i + 1)) {
+                int start = i + 1 - length;
+                int end = i + 1;
+                if (!merged.isEmpty() && start <= merged.get(merged.size() - 1).end()) {
+                    Span last = merged.remove(merged.size() - 1);
+                    merged.add(new Span(Math.min(last.start(), start), Math.max(last.end(), end)));
+                } else {
+                    merged.add(new Span(start, end));
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static boolean onWordBoundary(String text, int start, int end) {
+        if (!isWordChar(text.charAt(start))) {
+            return true;
+        }
+        return (start == 0 || !isWordChar(text.charAt(start - 1)))
+                && (end == text.length() || !isWordChar(text.charAt(end)));
+    }
+
+    /**
+     * 截取命中最密集的约 150 字符窗口，并用 &lt;em&gt; 标记所有命中词项。
+     */
+    public String highlight(String text) {
+        if (text == null) {
+            return "";
+        }
+        List<Span> spans = findMatches(text);
+        if (spans.isEmpty()) {
+            return text.length() > WINDOW_SIZE ? text.substring(0, WINDOW_SIZE) + "..." : text;
+        }
+
+        // 滑动窗口：选择覆盖命中字符数最多的一组连续区间
+        int bestFirst = 0;
+        int bestLast = 0;
+        int bestCovered = -1;
+        int covered = 0;
+        int first = 0;
+        for (int last = 0; last < spans.size(); last++) {
+            covered += spans.get(last).end() - spans.get(last).start();
+            while (spans.get(last).end() - spans.get(first).start() > WINDOW_SIZE && first < last) {
+                covered -= spans.get(first).end() - spans.get(first).start();
+                first++;
+            }
+            if (covered > bestCovered) {
+                bestCovered = covered;
+                bestFirst = first;
+                bestLast = last;
+            }
+        }
+
+        // 截取范围完整包含选中的窗口，剩余长度的一半（不超过 LEADING_CONTEXT）作为前文
+        int windowStart = spans.get(bestFirst).start();
+        int windowEnd = spans.get(bestLast).end();
+        int spare = Math.max(0, WINDOW_SIZE - (windowEnd - windowStart));
+        int sliceStart = Math.max(0, windowStart - Math.min(LEADING_CONTEXT, spare / 2));
+        int sliceEnd = Math.min(text.length(), Math.max(windowEnd, sliceStart + WINDOW_SIZE));
+        // 靠近正文末尾时把不足的长度补到前文
+        sliceStart = Math.max(0, Math.min(sliceStart, sliceEnd - WINDOW_SIZE));
+
+        StringBuilder sb = new StringBuilder(sliceEnd - sliceStart + 32);
+        if (sliceStart > 0) {
+            sb.append("...");
+        }
+        int cursor = sliceStart;
+        // 标记与截取范围相交的所有命中，包括前文中的命中
+        for (Span span : spans) {
+            if (span.end() <= sliceStart) {
+                continue;
+            }
+            if (span.start() >= sliceEnd) {
+                break;
+            }
+            int start = Math.max(span.start(), sliceStart);
+            int end = Math.min(span.end(), sliceEnd);
+            sb.append(text, cursor, start).append("<em>").append(text, start, end).append("</em>");
+            cursor = end;
+        }
+        sb.append(text, cursor, sliceEnd);
+        if (sliceEnd < text.length()) {
+            sb.append("...");
+        }
+        return sb.toString();
+    }
+}
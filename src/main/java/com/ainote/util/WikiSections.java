@@ -0,0 +1,84 @@
+package com.ainote.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按三级标题（"### "）切分实体百科，用于增量修订时只替换被改写的小节。
+ * 代码块内的 "### " 不视为标题。
+ */
+public class WikiSections {
+
+    public record Section(String heading, String body) {
+        public String render() {
+            return body.isEmpty() ? heading : heading + "\n" + body;
+        }
+    }
+
+    public record ParsedWiki(String preamble, List<Section> sections) {
+    }
+
+    public static ParsedWiki parse(String markdown) {
+        StringBuilder preamble = new StringBuilder();
+        List<Section> sections = new ArrayList<>();
+        String heading = null;
+        StringBuilder body = new StringBuilder();
+        boolean inCodeBlock = false;
+
+        for (String line : markdown.split("\n", -1)) {
+            if (line.trim().startsWith("```")) {
+                inCodeBlock = !inCodeBlock;
+            }
+            if (!inCodeBlock && line.startsWith("### ")) {
+                if (heading != null) {
+                    sections.add(new Section(heading, stripTrailingNewlines(body)));
+                }
+                heading = line.trim();
+                body.setLength(0);
+                continue;
+            }
+            (heading == null ? preamble : body).append(line).append("\n");
+        }
+        if (heading != null) {
+            sections.add(new Section(heading, stripTrailingNewlines(body)));
+        }
+        return new ParsedWiki(stripTrailingNewlines(preamble), sections);
+    }
+
+    /**
+     * 用修订稿中的小节替换原文中同名小节；修订稿新增的小节追加在末尾，未出现的小节保持原样。
+     */
+    public static String splice(ParsedWiki original, List<Section> revisedSections) {
+        Map<String, Section> revisedByHeading = new LinkedHashMap<>();
+        for (Section section : revisedSections) {
+            revisedByHeading.put(normalize(section.heading()), section);
+        }
+
+        StringBuilder result = new StringBuilder();
+        if (!original.preamble().isEmpty()) {
+            result.append(original.preamble()).append("\n\n");
+        }
+        for (Section section : original.sections()) {
+            Section revised = revisedByHeading.remove(normalize(section.heading()));
+            result.append((revised != null ? revised : section).render()).append("\n\n");
+        }
+        for (Section added : revisedByHeading.values()) {
+            result.append(added.render()).append("\n\n");
+        }
+        return result.toString().trim();
+    }
+
+    private static String normalize(String heading) {
+        return heading.replaceAll("\\s+", "");
+    }
+
+    private static String stripTrailingNewlines(StringBuilder sb) {
+        int end = sb.length();
+        while (end > 0 && (sb.charAt(end - 1) == '\n' || sb.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return sb.substring(0, end);
+    }
+}
@@ -0,0 +1,33 @@
+-- 在 Hibernate 建表之后执行（spring.jpa.defer-datasource-initialization=true），须保持幂等
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_note_tags_name_trgm ON note_tags USING gin (name gin_trgm_ops);
+
+-- 历史内容版本的分块与命题向量归档（按笔记 + 正文 MD5），回滚到这些版本时直接恢复，无需重新调用 LLM
+-- 向量归档表依赖 pgvector，仅在扩展可用时创建（评测使用的嵌入式 Postgres 不带该扩展，NoteArtifactArchive 据此跳过归档）
+-- DO 块正文用单引号而非 $$ 包裹，避免脚本按分号切分语句时被拆开
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_available_extensions WHERE name = ''vector'') THEN
+        CREATE EXTENSION IF NOT EXISTS vector;
+        CREATE TABLE IF NOT EXISTS vector_store_archive (
+            id UUID NOT NULL,
+            note_id VARCHAR(255) NOT NULL,
+            content_hash VARCHAR(32) NOT NULL,
+            content TEXT,
+            metadata JSON,
+            embedding VECTOR,
+            archived_at TIMESTAMP NOT NULL DEFAULT now()
+        );
+        CREATE INDEX IF NOT EXISTS idx_vector_store_archive_note ON vector_store_archive (note_id, content_hash);
+    END IF;
+END';
+CREATE TABLE IF NOT EXISTS note_chunk_archive (
+    id VARCHAR(36) NOT NULL,
+    note_id VARCHAR(255) NOT NULL,
+    content_hash VARCHAR(32) NOT NULL,
+    content TEXT NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    chunk_type VARCHAR(255) NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_note_chunk_archive_note ON note_chunk_archive (note_id, content_hash);
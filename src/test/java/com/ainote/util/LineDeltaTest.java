@@ -0,0 +1,120 @@
+package com.ainote.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LineDelta 是笔记正文历史的唯一副本，回放结果必须与原文逐字节一致。
+ */
+class LineDeltaTest {
+
+    private static void assertRoundTrip(String oldText, String newText) {
+        String delta = LineDelta.encode(oldText, newText);
+        assertThat(LineDelta.apply(oldText, delta)).isEqualTo(newText);
+    }
+
+    @Test
+    void roundTripsEmptyText() {
+        assertRoundTrip("", "");
+        assertRoundTrip("", "first line\nsecond line");
+        assertRoundTrip("first line\nsecond line", "");
+        assertRoundTrip("", "\n");
+        assertRoundTrip("\n", "");
+    }
+
+    @Test
+    void preservesTrailingNewline() {
+        assertRoundTrip("a\nb\nc", "a\nb\nc\n");
+        assertRoundTrip("a\nb\nc\n", "a\nb\nc");
+        assertRoundTrip("a\nb\nc\n", "a\nx\nc\n");
+        assertRoundTrip("a\nb\nc\n\n", "a\nb\nc\n");
+        assertRoundTrip("a\r\nb\r\n", "a\r\nc\r\n");
+    }
+
+    @Test
+    void identicalTextProducesCopyOnlyDelta() {
+        String text = "# 标题\n\n正文第一段\n正文第二段\n";
+        String delta = LineDelta.encode(text, text);
+        assertThat(delta).isEqualTo("=" + LineDelta.lines(text).length);
+        assertThat(LineDelta.apply(text, delta)).isEqualTo(text);
+    }
+
+    @Test
+    void insertedLinesMayLookLikeInstructions() {
+        assertRoundTrip("a\nb", "a\n=3\n+1\n-2\nb");
+        assertRoundTrip("=1\n+1", "-1\n=1\n+1");
+    }
+
+    @Test
+    void fallsBackToDeleteAndInsertBeyondMaxEditDistance() {
+        // 旧新文本各 3000 行互不相同，编辑距离 6000 超过 MAX_EDIT_DISTANCE，中间部分整体替换
+        StringBuilder oldText = new StringBuilder("shared head\n");
+        StringBuilder newText = new StringBuilder("shared head\n");
+        for (int i = 0; i < 3000; i++) {
+            oldText.append("old line ").append(i).append('\n');
+            newText.append("new line ").append(i).append('\n');
+        }
+        oldText.append("shared tail");
+        newText.append("shared tail");
+
+        List<LineDelta.Run> runs = LineDelta.diff(LineDelta.lines(oldText.toString()),
+                LineDelta.lines(newText.toString()));
+        assertThat(runs).containsExactly(
+                new LineDelta.Run(LineDelta.Op.EQUAL, 1),
+                new LineDelta.Run(LineDelta.Op.DELETE, 3000),
+                new LineDelta.Run(LineDelta.Op.INSERT, 3000),
+                new LineDelta.Run(LineDelta.Op.EQUAL, 1));
+        assertRoundTrip(oldText.toString(), newText.toString());
+    }
+
+    @Test
+    void roundTripsRandomEditChains() {
+        Random random = new Random(20260419L);
+        String[] vocabulary = { "", "alpha", "beta", "gamma", "=1", "+2", "-3", "  indented", "中文行", "\r" };
+        for (int trial = 0; trial < 500; trial++) {
+            List<String> lines = new ArrayList<>();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                lines.add(vocabulary[random.nextInt(vocabulary.length)]);
+            }
+            String current = String.join("\n", lines);
+            // 模拟快照后的增量链：逐个版本编码，再从起点依次回放
+            String base = current;
+            List<String> deltas = new ArrayList<>();
+            List<String> versions = new ArrayList<>();
+            for (int step = 0; step < 5; step++) {
+                List<String> next = new ArrayList<>(List.of(LineDelta.lines(current)));
+                for (int edits = random.nextInt(4); edits >= 0; edits--) {
+                    int position = random.nextInt(next.size() + 1);
+                    switch (random.nextInt(3)) {
+                        case 0 -> next.add(position, vocabulary[random.nextInt(vocabulary.length)]);
+                        case 1 -> {
+                            if (position < next.size()) {
+                                next.remove(position);
+                            }
+                        }
+                        default -> {
+                            if (position < next.size()) {
+                                next.set(position, vocabulary[random.nextInt(vocabulary.length)]);
+                            }
+                        }
+                    }
+                }
+                String updated = String.join("\n", next);
+                deltas.add(LineDelta.encode(current, updated));
+                versions.add(updated);
+                current = updated;
+            }
+
+            String replayed = base;
+            for (int i = 0; i < deltas.size(); i++) {
+                replayed = LineDelta.apply(replayed, deltas.get(i));
+                assertThat(replayed).isEqualTo(versions.get(i));
+            }
+        }
+    }
+}